@@ -0,0 +1,240 @@
+import edu.princeton.cs.algs4.StdOut;
+
+// Anytime search on boards of up to 4-by-4: weighted A*, ordered by g + w*h, finds a
+// solution of at most w times the fewest moves far sooner than A* finds the shortest.
+// The search restarts with w lowered step by step down to 1, each run skipping nodes
+// that cannot beat the best solution so far, and hands every better solution to a
+// listener with a bound on how far it is from the shortest, until the deadline passes
+// or a solution is proved optimal.
+//
+// Each run keeps every state it reaches, so the last runs take as much memory as A*.
+// A run that would hold more than a fixed number of states stops instead, and the
+// search ends with the best solution so far.
+public class AnytimeSolver {
+    // weights of the successive runs, in halves: 5, 3, 2, 1.5 and finally 1 (plain A*)
+    private static final int[] WEIGHTS = { 10, 6, 4, 3, 2 };
+    private static final int SCALE = 2;
+    private static final int CHECK_INTERVAL = 1 << 10; // expansions between deadline checks
+    // bytes per state of a run: closed set entry, doubled while it grows, tree node and
+    // queue entry, roughly
+    private static final int STATE_BYTES = 100;
+
+    // receives each solution better than those before it. When a run proves the best
+    // solution so far is the shortest without finding a better one, that solution is
+    // handed over once more with lowerBound() raised to moves()
+    public interface Listener {
+        void solved(Solution solution);
+    }
+
+    // a solution and how far it can be from the shortest
+    public static class Solution {
+        private final Board _initial;
+        private final int[] _blanks;
+        private final int _lowerBound;
+        private final double _weight;
+
+        private Solution(Board initial, int[] blanks, int lowerBound, double weight) {
+            _initial = initial;
+            _blanks = blanks;
+            _lowerBound = lowerBound;
+            _weight = weight;
+        }
+
+        // number of moves of this solution
+        public int moves() {
+            return _blanks.length;
+        }
+
+        // sequence of boards of this solution
+        public Iterable<Board> solution() {
+            return Solver.replay(_initial, _blanks);
+        }
+
+        // fewest moves any solution can have, as far as the search has proved
+        public int lowerBound() {
+            return _lowerBound;
+        }
+
+        // moves() over lowerBound(): the solution is at most this many times longer than
+        // the shortest, 1 if it is the shortest
+        public double bound() {
+            return _lowerBound == 0 ? 1 : (double) moves() / _lowerBound;
+        }
+
+        public boolean isOptimal() {
+            return moves() == _lowerBound;
+        }
+
+        // weight of the run that found the solution
+        public double weight() {
+            return _weight;
+        }
+    }
+
+    private final Board _initial;
+    private final Heuristic _heuristic;
+    private final int _n;
+    private final long _goal;
+    private final int _maxStates;
+    private Solution _best;
+    private int _lowerBound; // fewest moves a solution can have, as proved so far
+    private long _deadline; // System.nanoTime() at which to stop
+    private long _expanded;
+    private boolean _overBudget; // the last solve() stopped at the state budget
+
+    // prepares a search of the initial board, ordered by heuristic (Manhattan distance if
+    // null), each run holding states in about a quarter of the maximum heap
+    public AnytimeSolver(Board initial, Heuristic heuristic) {
+        this(initial, heuristic, defaultBudget());
+    }
+
+    // as above, each run holding at most maxStates states
+    public AnytimeSolver(Board initial, Heuristic heuristic, int maxStates) {
+        if (initial == null) {
+            throw new IllegalArgumentException("Cannot build a solver with null board");
+        }
+        int n = initial.dimension();
+        if (!PackedBoard.fits(n)) {
+            throw new IllegalArgumentException("Cannot solve a " + n + "-by-" + n + " board");
+        }
+        if (heuristic != null && heuristic.dimension() != n) {
+            throw new IllegalArgumentException("Heuristic for size " + heuristic.dimension() + " cannot solve size " + n);
+        }
+        if (maxStates < 1) {
+            throw new IllegalArgumentException("State budget " + maxStates + " must be positive");
+        }
+        _initial = initial;
+        _heuristic = heuristic != null ? heuristic : new ManhattanHeuristic(n);
+        _n = n;
+        _goal = PackedBoard.goal(n);
+        _maxStates = maxStates;
+    }
+
+    // state budget taking about a quarter of the maximum heap
+    private static int defaultBudget() {
+        long states = Runtime.getRuntime().maxMemory() / 4 / STATE_BYTES;
+        return (int) Math.max(1, Math.min(states, Integer.MAX_VALUE));
+    }
+
+    // searches for up to millis milliseconds, or until a run reaches the state budget,
+    // handing each better solution to listener (if not null); returns the best solution
+    // found, null if the board is unsolvable or no solution was found in time
+    public Solution solve(long millis, Listener listener) {
+        if (millis < 0) {
+            throw new IllegalArgumentException("Time limit " + millis + " must not be negative");
+        }
+        _deadline = System.nanoTime() + millis * 1_000_000;
+        _best = null;
+        _expanded = 0;
+        _overBudget = false;
+        if (!_initial.isSolvable())
+            return null;
+        long start = _initial.packed();
+        _lowerBound = start == _goal ? 0 : _heuristic.estimate(start);
+        for (int weight : WEIGHTS) {
+            if (!search(start, weight, listener) || _best == null || _best.isOptimal())
+                break;
+        }
+        return _best;
+    }
+
+    // nodes expanded by the last solve(), over all its runs
+    public long expanded() {
+        return _expanded;
+    }
+
+    // did the last solve() stop because a run reached the state budget?
+    public boolean isOverBudget() {
+        return _overBudget;
+    }
+
+    // one run of weighted A* at weight / SCALE, the closed set keeping the fewest moves
+    // found to every state; returns false when the deadline passed or the closed set
+    // outgrew the state budget
+    private boolean search(long start, int weight, Listener listener) {
+        int incumbent = _best == null ? Integer.MAX_VALUE : _best.moves();
+        SearchTree tree = new SearchTree();
+        BucketQueue priorityQueue = new BucketQueue();
+        StateTable closed = new StateTable();
+        int estimate = _heuristic.estimate(start);
+        closed.offer(start, 0);
+        priorityQueue.insert(tree.addRoot(start, 0, estimate), weight * estimate, estimate);
+        while (!priorityQueue.isEmpty()) {
+            if (_expanded % CHECK_INTERVAL == 0 && System.nanoTime() - _deadline >= 0)
+                return false;
+            if (closed.size() > _maxStates) {
+                _overBudget = true;
+                return false;
+            }
+            int node = priorityQueue.delMin();
+            long state = tree.state(node);
+            int step = tree.step(node);
+            // a shorter path to this state was found after it was queued, or the node
+            // cannot lead to a solution shorter than the best so far
+            if (closed.steps(state) < step || step + tree.estimate(node) >= incumbent)
+                continue;
+            if (state == _goal) {
+                // every node of a shortest path still queued has g + w*h >= step, so the
+                // shortest path has at least step / w moves
+                int lowerBound = (step * SCALE + weight - 1) / weight;
+                publish(tree.blanks(node, _initial.blank(), _n), Math.max(_lowerBound, lowerBound),
+                        (double) weight / SCALE, listener);
+                return true;
+            }
+            ++_expanded;
+            int blank = PackedBoard.blank(state, _n);
+            for (int dir = 0; dir < 4; ++dir) {
+                int to = SearchTree.neighbour(blank, dir, _n);
+                if (to == -1)
+                    continue;
+                long next = PackedBoard.move(state, blank, to);
+                if (!closed.offer(next, step + 1))
+                    continue;
+                int h = _heuristic.update(state, tree.estimate(node), PackedBoard.tile(state, to), to, blank);
+                if (step + 1 + h >= incumbent)
+                    continue;
+                priorityQueue.insert(tree.add(next, node, dir, h), SCALE * (step + 1) + weight * h, h);
+            }
+        }
+        // every node that could lead to a shorter solution was expanded: the best is
+        // optimal, and goes to the listener again with that bound
+        if (_best != null)
+            publish(_best._blanks, _best.moves(), _best.weight(), listener);
+        return true;
+    }
+
+    private void publish(int[] blanks, int lowerBound, double weight, Listener listener) {
+        _lowerBound = lowerBound;
+        _best = new Solution(_initial, blanks, lowerBound, weight);
+        if (listener != null)
+            listener.solved(_best);
+    }
+
+    // test client: solves the board in the file named by the first argument within the
+    // milliseconds given by the second (100 by default), ordered by the heuristic named by
+    // the third (manhattan, linear or a pattern database file) and holding at most the
+    // number of states given by the fourth
+    public static void main(String[] args) {
+        Board initial = Solver.readBoard(args[0]);
+        long millis = args.length > 1 ? Long.parseLong(args[1]) : 100;
+        Heuristic heuristic = args.length > 2 ? Solver.heuristic(args[2], initial.dimension()) : null;
+
+        final long start = System.nanoTime();
+        AnytimeSolver solver = args.length > 3 ? new AnytimeSolver(initial, heuristic, Integer.parseInt(args[3]))
+                : new AnytimeSolver(initial, heuristic);
+        Solution best = solver.solve(millis, new Listener() {
+            public void solved(Solution solution) {
+                StdOut.printf("%d moves, at most %.3f times the fewest (weight %.1f), after %d ms%n",
+                        solution.moves(), solution.bound(), solution.weight(), (System.nanoTime() - start) / 1_000_000);
+            }
+        });
+        StdOut.printf("expanded %d nodes%s%n", solver.expanded(), solver.isOverBudget() ? ", stopped at the state budget" : "");
+        if (best == null)
+            StdOut.println(initial.isSolvable() ? "No solution found in time" : "No solution possible");
+        else {
+            StdOut.println("Best number of moves = " + best.moves() + (best.isOptimal() ? " (optimal)" : ""));
+            for (Board board : best.solution())
+                StdOut.println(board);
+        }
+    }
+}
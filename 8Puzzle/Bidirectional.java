@@ -0,0 +1,157 @@
+import edu.princeton.cs.algs4.StdOut;
+
+// Bidirectional A* on packed boards: a forward search from the start, ordered by the
+// given heuristic, and a backward search from the goal, ordered by the Manhattan
+// distance to the start. Each step expands the side with the smaller frontier. A state
+// reached by both sides closes a path whose length is the sum of its two move counts;
+// the shortest such path is kept, and the search stops once either side has no node
+// with f below its length, as every path still unseen is at least that long.
+class Bidirectional {
+    private final boolean _bothWays; // false to expand the forward side only, plain A*
+    private final long _start;
+    private final long _goal;
+    private final Side _forward;
+    private final Side _backward;
+    private int _best; // length of the shortest path found
+    private long _meeting; // state where that path crosses from one side to the other
+
+    // prepares a search of the packed state start, ordered forward by heuristic
+    Bidirectional(long start, Heuristic heuristic) {
+        this(start, heuristic, true);
+    }
+
+    // as above; unless bothWays is set only the forward side expands, which is A* with
+    // the same bookkeeping, meeting the backward side at its root
+    private Bidirectional(long start, Heuristic heuristic, boolean bothWays) {
+        _bothWays = bothWays;
+        int n = heuristic.dimension();
+        _start = start;
+        _goal = PackedBoard.goal(n);
+        _forward = new Side(start, heuristic);
+        _backward = new Side(_goal, new ManhattanHeuristic(n, start));
+        _best = Integer.MAX_VALUE;
+    }
+
+    // runs the search; returns the states of a shortest solution, from start to goal
+    long[] solve() {
+        while (true) {
+            Side side = !_bothWays || _forward._open.size() <= _backward._open.size() ? _forward : _backward;
+            Side other = side == _forward ? _backward : _forward;
+            // a side with nothing left to expand proves every path through it is found
+            if (side._open.isEmpty() || !side.expand(other))
+                break;
+        }
+        if (_best == Integer.MAX_VALUE)
+            throw new IllegalStateException("The goal cannot be reached");
+        // forward half read backwards from the meeting state, then the backward half
+        int forwardSteps = 0;
+        for (long state = _meeting; state != _start; state = _forward._closed.parent(state))
+            ++forwardSteps;
+        int backwardSteps = 0;
+        for (long state = _meeting; state != _goal; state = _backward._closed.parent(state))
+            ++backwardSteps;
+        long[] path = new long[forwardSteps + backwardSteps + 1];
+        long state = _meeting;
+        for (int i = forwardSteps; i > 0; --i) {
+            path[i] = state;
+            state = _forward._closed.parent(state);
+        }
+        path[0] = _start;
+        state = _meeting;
+        for (int i = forwardSteps + 1; i < path.length; ++i) {
+            state = _backward._closed.parent(state);
+            path[i] = state;
+        }
+        return path;
+    }
+
+    // states expanded by both sides
+    long expanded() {
+        return _forward._expanded + _backward._expanded;
+    }
+
+    // states kept in the closed sets of both sides
+    long stored() {
+        return _forward._closed.size() + _backward._closed.size();
+    }
+
+    // one direction of the search
+    private class Side {
+        private final Heuristic _heuristic;
+        private final int _n;
+        private final SearchTree _nodes = new SearchTree(); // frontier entries, freed once popped; parents are in _closed
+        private final BucketQueue _open = new BucketQueue();
+        private final StateTable _closed = new StateTable(true);
+        private long _expanded;
+
+        Side(long root, Heuristic heuristic) {
+            _heuristic = heuristic;
+            _n = heuristic.dimension();
+            int h = heuristic.estimate(root);
+            _closed.offer(root, 0, 0);
+            _open.insert(_nodes.addRoot(root, 0, h), h, h);
+        }
+
+        // expands the best node of this side; returns false when the search is over
+        boolean expand(Side other) {
+            int node = _open.delMin();
+            long state = _nodes.state(node);
+            int estimate = _nodes.estimate(node);
+            int step = _nodes.step(node) + 1;
+            _nodes.free(node);
+            if (step - 1 + estimate >= _best)
+                return false;
+            // a shorter path to this state was found after it was queued
+            if (_closed.steps(state) < step - 1)
+                return true;
+            ++_expanded;
+            int blank = PackedBoard.blank(state, _n);
+            for (int dir = 0; dir < 4; ++dir) {
+                int to = SearchTree.neighbour(blank, dir, _n);
+                if (to == -1)
+                    continue;
+                long next = PackedBoard.move(state, blank, to);
+                if (!_closed.offer(next, step, state))
+                    continue;
+                int steps = other._closed.steps(next);
+                if (steps >= 0 && step + steps < _best) {
+                    _best = step + steps;
+                    _meeting = next;
+                }
+                int h = _heuristic.update(state, estimate, PackedBoard.tile(state, to), to, blank);
+                if (step + h >= _best)
+                    continue;
+                _open.insert(_nodes.addRoot(next, step, h), step + h, h);
+            }
+            return true;
+        }
+    }
+
+    // benchmark: java Bidirectional heuristic puzzle.txt... solves each board both ways
+    // and forward only, and prints the states expanded and held in the closed sets
+    public static void main(String[] args) {
+        long[] totals = new long[4];
+        for (int i = 1; i < args.length; ++i) {
+            Board initial = Solver.readBoard(args[i]);
+            int n = initial.dimension();
+            if (!PackedBoard.fits(n) || !initial.isSolvable() || initial.isGoal())
+                throw new IllegalArgumentException(args[i] + " must be solvable, unsolved and at most 4-by-4");
+            Heuristic heuristic = Solver.heuristic(args[0], n);
+            if (heuristic == null)
+                heuristic = new ManhattanHeuristic(n);
+            Bidirectional both = new Bidirectional(initial.packed(), heuristic, true);
+            int moves = both.solve().length - 1;
+            Bidirectional forward = new Bidirectional(initial.packed(), heuristic, false);
+            if (forward.solve().length - 1 != moves)
+                throw new IllegalStateException("The two searches disagree on " + args[i]);
+            StdOut.printf("%s: %d moves, expanded %d -> %d, stored %d -> %d%n", args[i], moves, forward.expanded(),
+                    both.expanded(), forward.stored(), both.stored());
+            totals[0] += forward.expanded();
+            totals[1] += both.expanded();
+            totals[2] += forward.stored();
+            totals[3] += both.stored();
+        }
+        StdOut.printf("A* -> bidirectional: expanded %d -> %d, stored %d -> %d%n", totals[0], totals[1], totals[2],
+                totals[3]);
+    }
+}
@@ -5,7 +5,6 @@ public class Board {
 
     private final int _n;
     private final int[] _tiles;
-    private final Stack<Board> _neighbours;
     private int _hamming;
     private int _manhattan;
 
@@ -20,15 +19,59 @@ public class Board {
                 _tiles[loc++] = tiles[row][col];
             }
         }
-        _neighbours = new Stack<Board>();
         _hamming = -1;
         _manhattan = -1;
     }
 
-    private void addNeighbourBoard(int[][] originalTiles, int oldZeroLoc, int newZeroLoc) {
-        originalTiles[oldZeroLoc / _n][oldZeroLoc % _n] = _tiles[newZeroLoc];
-        originalTiles[newZeroLoc / _n][newZeroLoc % _n] = _tiles[oldZeroLoc];
-        _neighbours.push(new Board(originalTiles));
+    // create a board that owns the row-major tiles
+    private Board(int n, int[] tiles) {
+        _n = n;
+        _tiles = tiles;
+        _hamming = -1;
+        _manhattan = -1;
+    }
+
+    // the board of a copy of the row-major n-by-n tiles
+    static Board fromTiles(int n, int[] tiles) {
+        return new Board(n, tiles.clone());
+    }
+
+    // copy of the row-major tiles
+    int[] tiles() {
+        return _tiles.clone();
+    }
+
+    // the board of an n-by-n packed state, see PackedBoard
+    static Board fromPacked(long state, int n) {
+        return new Board(n, PackedBoard.unpack(state, n));
+    }
+
+    // this board packed into a long; only for boards of up to PackedBoard.MAX_N
+    long packed() {
+        if (!PackedBoard.fits(_n))
+            throw new IllegalStateException("A " + _n + "-by-" + _n + " board cannot be packed");
+        return PackedBoard.pack(_tiles);
+    }
+
+    // position of the blank, row-major
+    int blank() {
+        int zeroLoc = 0;
+        while (_tiles[zeroLoc] != 0)
+            ++zeroLoc;
+        return zeroLoc;
+    }
+
+    // the board obtained by sliding the tile at newZeroLoc into the blank at oldZeroLoc.
+    // Only that tile moves, so its hamming and manhattan follow from ours in O(1)
+    private Board neighbourBoard(int oldZeroLoc, int newZeroLoc) {
+        int tile = _tiles[newZeroLoc];
+        int[] tiles = _tiles.clone();
+        tiles[oldZeroLoc] = tile;
+        tiles[newZeroLoc] = 0;
+        Board neighbour = new Board(_n, tiles);
+        neighbour._hamming = hamming() - (tile != newZeroLoc + 1 ? 1 : 0) + (tile != oldZeroLoc + 1 ? 1 : 0);
+        neighbour._manhattan = manhattan() + PackedBoard.manhattanDelta(tile, newZeroLoc, oldZeroLoc, _n);
+        return neighbour;
     }
 
     // string representation of this board
@@ -98,33 +141,52 @@ public class Board {
         return Arrays.equals(_tiles, that._tiles);
     }
 
+    // hash of the tiles, consistent with equals
+    public int hashCode() {
+        return Arrays.hashCode(_tiles);
+    }
+
     // all neighboring boards
     public Iterable<Board> neighbors() {
-        if (_neighbours.size() == 0) {
-            int[][][] tilesCopy = new int[4][_n][_n];
-            int zeroLoc = -1;
-            int loc = 0;
-            for (int row = 0; row < _n; ++row) {
-                for (int col = 0; col < _n; ++col, ++loc) {
-                    if (_tiles[loc] == 0)
-                        zeroLoc = loc;
-                    for (int i = 0; i < 4; ++i) {
-                        tilesCopy[i][row][col] = _tiles[loc];
-                    }
-                }
-            }
-            int[] possibleLoc = new int[4];
-            possibleLoc[0] = zeroLoc % _n != 0 ? zeroLoc - 1 : -1;
-            possibleLoc[1] = zeroLoc % _n != _n - 1 ? zeroLoc + 1 : -1;
-            possibleLoc[2] = zeroLoc - _n;
-            possibleLoc[3] = zeroLoc + _n;
-            for (int i = 0; i < 4; ++i) {
-                if (possibleLoc[i] < 0 || possibleLoc[i] >= _n * _n)
-                    continue;
-                addNeighbourBoard(tilesCopy[i], zeroLoc, possibleLoc[i]);
+        Stack<Board> neighbours = new Stack<Board>();
+        int zeroLoc = blank();
+        if (zeroLoc % _n != 0)
+            neighbours.push(neighbourBoard(zeroLoc, zeroLoc - 1));
+        if (zeroLoc % _n != _n - 1)
+            neighbours.push(neighbourBoard(zeroLoc, zeroLoc + 1));
+        if (zeroLoc >= _n)
+            neighbours.push(neighbourBoard(zeroLoc, zeroLoc - _n));
+        if (zeroLoc < _n * (_n - 1))
+            neighbours.push(neighbourBoard(zeroLoc, zeroLoc + _n));
+        return neighbours;
+    }
+
+    // can this board reach the goal? A move of the blank along a row keeps the order of
+    // the tiles; a move along a column jumps one tile over n - 1 others, flipping n - 1
+    // inversions. For odd n the parity of the inversions is therefore
+    // fixed and must be even as in the goal; for even n each column move also changes the
+    // row of the blank, so inversions + blank row must stay odd as in the goal.
+    // Inversions are counted with a Fenwick tree over the tile values, O(n^2 log n)
+    boolean isSolvable() {
+        int size = _n * _n;
+        int[] fenwick = new int[size];
+        long inversions = 0;
+        int blankRow = 0;
+        for (int loc = size - 1; loc >= 0; --loc) {
+            int tile = _tiles[loc];
+            if (tile == 0) {
+                blankRow = loc / _n;
+                continue;
             }
+            // tiles smaller than tile to its right
+            for (int i = tile - 1; i > 0; i -= i & -i)
+                inversions += fenwick[i];
+            for (int i = tile; i < size; i += i & -i)
+                ++fenwick[i];
         }
-        return _neighbours;
+        if (_n % 2 == 1)
+            return inversions % 2 == 0;
+        return (inversions + blankRow) % 2 == 1;
     }
 
     // a board that is obtained by exchanging any pair of tiles
@@ -0,0 +1,141 @@
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+import edu.princeton.cs.algs4.MinPQ;
+import edu.princeton.cs.algs4.StdOut;
+import edu.princeton.cs.algs4.StdRandom;
+
+// Frontier of the A* searches: int items (SearchTree nodes) keyed by small integer
+// f = moves + estimate and h = estimate, removed smallest f first, then smallest h,
+// then last in first out. Every (f, h) pair has its own stack; as h <= f, the pair
+// maps to the triangular index f*(f+1)/2 + h, which orders the pairs exactly like the
+// comparison, so insert and delMin are a push or pop plus a cursor that only moves
+// forward between decreases of the minimum.
+class BucketQueue {
+    private int[][] _buckets; // stack of items of each key, null until used
+    private int[] _sizes; // number of items in each stack
+    private int _min; // no key below it holds an item
+    private int _size;
+
+    BucketQueue() {
+        _buckets = new int[1 << 10][];
+        _sizes = new int[_buckets.length];
+        _min = 0;
+        _size = 0;
+    }
+
+    private static int key(int f, int h) {
+        return f * (f + 1) / 2 + h;
+    }
+
+    boolean isEmpty() {
+        return _size == 0;
+    }
+
+    int size() {
+        return _size;
+    }
+
+    // adds item with the priority f and the estimate h, 0 <= h <= f
+    void insert(int item, int f, int h) {
+        if (h < 0 || h > f)
+            throw new IllegalArgumentException("Estimate " + h + " must be between 0 and priority " + f);
+        int key = key(f, h);
+        if (key >= _buckets.length) {
+            int length = Math.max(2 * _buckets.length, key + 1);
+            _buckets = Arrays.copyOf(_buckets, length);
+            _sizes = Arrays.copyOf(_sizes, length);
+        }
+        int[] bucket = _buckets[key];
+        if (bucket == null)
+            bucket = _buckets[key] = new int[16];
+        else if (_sizes[key] == bucket.length)
+            bucket = _buckets[key] = Arrays.copyOf(bucket, 2 * bucket.length);
+        bucket[_sizes[key]++] = item;
+        if (key < _min)
+            _min = key;
+        ++_size;
+    }
+
+    // removes and returns the item with the smallest f, then h, inserted last
+    int delMin() {
+        if (_size == 0)
+            throw new NoSuchElementException("Priority queue underflow");
+        while (_sizes[_min] == 0)
+            ++_min;
+        --_size;
+        return _buckets[_min][--_sizes[_min]];
+    }
+
+    // benchmark against MinPQ, ordered like the old Solver frontier: java BucketQueue
+    // [pops [seed]]. Both queues replay the same A*-shaped run, where every removed node
+    // has up to three children whose estimate is one more or one less, so f stays the
+    // same or grows by 2, as with Manhattan distance on the 15-puzzle
+    public static void main(String[] args) {
+        int pops = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 1;
+        for (int round = 0; round < 3; ++round) {
+            StdRandom.setSeed(seed);
+            long start = System.nanoTime();
+            long bucketSum = runBuckets(pops);
+            long bucketTime = System.nanoTime() - start;
+            StdRandom.setSeed(seed);
+            start = System.nanoTime();
+            long heapSum = runHeap(pops);
+            long heapTime = System.nanoTime() - start;
+            if (bucketSum != heapSum)
+                throw new IllegalStateException("The queues removed different items");
+            StdOut.printf("%d pops: BucketQueue %d ms, MinPQ %d ms%n", pops, bucketTime / 1_000_000,
+                    heapTime / 1_000_000);
+        }
+    }
+
+    // the f and h of a node are packed as f << 8 | h; returns a checksum of the order
+    private static long runBuckets(int pops) {
+        BucketQueue queue = new BucketQueue();
+        int[] nodes = new int[2 * pops + 4];
+        int count = 0;
+        nodes[count] = 40 << 8 | 40;
+        queue.insert(count++, 40, 40);
+        long sum = 0;
+        for (int i = 0; i < pops && !queue.isEmpty(); ++i) {
+            int node = queue.delMin();
+            sum = 31 * sum + node;
+            int f = nodes[node] >>> 8;
+            int h = nodes[node] & 0xFF;
+            int children = 1 + StdRandom.uniform(3);
+            for (int c = 0; c < children && count < nodes.length; ++c) {
+                int next = h == 0 || StdRandom.bernoulli(0.5) ? h + 1 : h - 1;
+                int nextF = f + 1 + next - h;
+                nodes[count] = nextF << 8 | next;
+                queue.insert(count++, nextF, next);
+            }
+        }
+        return sum;
+    }
+
+    // the same run on a binary heap of keys f, h, then newest first, packed into a long
+    private static long runHeap(int pops) {
+        MinPQ<Long> queue = new MinPQ<Long>();
+        int count = 0;
+        queue.insert(key(40, 40, count++));
+        long sum = 0;
+        for (int i = 0; i < pops && !queue.isEmpty(); ++i) {
+            long key = queue.delMin();
+            int node = (int) (0xFFFFFFFFL - (key & 0xFFFFFFFFL));
+            sum = 31 * sum + node;
+            int f = (int) (key >>> 40);
+            int h = (int) (key >>> 32) & 0xFF;
+            int children = 1 + StdRandom.uniform(3);
+            for (int c = 0; c < children && count < 2 * pops + 4; ++c) {
+                int next = h == 0 || StdRandom.bernoulli(0.5) ? h + 1 : h - 1;
+                queue.insert(key(f + 1 + next - h, next, count++));
+            }
+        }
+        return sum;
+    }
+
+    private static long key(int f, int h, int node) {
+        return (long) f << 40 | (long) h << 32 | (0xFFFFFFFFL - node);
+    }
+}
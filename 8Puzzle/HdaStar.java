@@ -0,0 +1,322 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import edu.princeton.cs.algs4.StdOut;
+
+// Hash-distributed A* (HDA*) on packed boards. Every state has an owner, picked by a
+// hash of the state; each worker thread keeps the frontier and the closed set of the
+// states it owns and runs A* on them. A generated state owned by another worker is
+// buffered and sent to it in batches, through a lock-free inbox per worker (a stack of
+// batches pushed with compare-and-set and emptied with one getAndSet).
+//
+// Workers expand in f order only locally, so a state can be reached again by a shorter
+// path after it was expanded; it is then expanded again. The goal's owner keeps the best
+// cost found, and nodes with f at or above it are dropped. The search ends when no work
+// is left anywhere: _pending counts the nodes queued in frontiers plus those sent and not
+// yet received, and a node's children are added before the node itself is retired, so it
+// only reaches zero once every node with f below the best cost was expanded, which makes
+// that cost optimal.
+class HdaStar {
+    private static final int BATCH = 64; // states per message batch
+    private static final int FLUSH_INTERVAL = 32; // expansions between flushes of partial batches
+    private static final int SPINS = 64; // idle rounds that yield before idle rounds start to sleep
+    private static final long IDLE_NANOS = 50_000;
+
+    private final int _n;
+    private final Heuristic _heuristic;
+    private final long _goal;
+    private final Worker[] _workers;
+    private final AtomicLong _pending;
+    private volatile int _best; // fewest moves to the goal found so far
+    private volatile Throwable _failure;
+
+    // prepares a search of the packed n-by-n state start, ordered by heuristic, on threads workers
+    HdaStar(long start, Heuristic heuristic, int threads) {
+        _n = heuristic.dimension();
+        _heuristic = heuristic;
+        _goal = PackedBoard.goal(_n);
+        _pending = new AtomicLong();
+        _best = Integer.MAX_VALUE;
+        _workers = new Worker[threads];
+        for (int w = 0; w < threads; ++w) {
+            _workers[w] = new Worker(w);
+        }
+        _pending.set(1);
+        _workers[owner(start)].receive(start, 0, heuristic.estimate(start), 0);
+    }
+
+    private int owner(long state) {
+        long mixed = (state ^ (state >>> 31)) * 0x9E3779B97F4A7C15L;
+        return (int) ((mixed >>> 32) % _workers.length);
+    }
+
+    // runs the workers until the search ends; returns the states of a shortest solution,
+    // from start to goal
+    long[] solve() {
+        Thread[] threads = new Thread[_workers.length];
+        for (int w = 0; w < threads.length; ++w) {
+            threads[w] = new Thread(_workers[w], "hda-" + w);
+            threads[w].start();
+        }
+        boolean interrupted = false;
+        for (Thread thread : threads) {
+            while (true) {
+                try {
+                    thread.join();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+        if (_failure != null)
+            throw new IllegalStateException("A search worker failed", _failure);
+        if (_best == Integer.MAX_VALUE)
+            throw new IllegalStateException("The goal cannot be reached");
+        long[] path = new long[_best + 1];
+        long state = _goal;
+        for (int i = _best; i >= 0; --i) {
+            path[i] = state;
+            state = _workers[owner(state)]._closed.parent(state);
+        }
+        return path;
+    }
+
+    // states expanded by each worker, the load balance of the last solve()
+    long[] expanded() {
+        long[] expanded = new long[_workers.length];
+        for (int w = 0; w < expanded.length; ++w) {
+            expanded[w] = _workers[w]._expanded;
+        }
+        return expanded;
+    }
+
+    // benchmark: java HdaStar puzzle.txt [heuristic [threads...]] solves the board on each
+    // number of threads (1, 8 and 32 by default) and prints the time and the states
+    // expanded, in total and by the busiest and idlest worker
+    public static void main(String[] args) {
+        Board initial = Solver.readBoard(args[0]);
+        int n = initial.dimension();
+        if (!PackedBoard.fits(n) || !initial.isSolvable())
+            throw new IllegalArgumentException("The board must be solvable and at most 4-by-4");
+        Heuristic heuristic = args.length > 1 ? Solver.heuristic(args[1], n) : null;
+        if (heuristic == null)
+            heuristic = new ManhattanHeuristic(n);
+        int[] threadCounts = { 1, 8, 32 };
+        if (args.length > 2) {
+            threadCounts = new int[args.length - 2];
+            for (int i = 2; i < args.length; ++i)
+                threadCounts[i - 2] = Integer.parseInt(args[i]);
+        }
+        StdOut.println(Runtime.getRuntime().availableProcessors() + " processors");
+        for (int threads : threadCounts) {
+            long start = System.nanoTime();
+            HdaStar search = new HdaStar(initial.packed(), heuristic, threads);
+            int moves = search.solve().length - 1;
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            long total = 0;
+            long most = 0;
+            long least = Long.MAX_VALUE;
+            for (long expanded : search.expanded()) {
+                total += expanded;
+                most = Math.max(most, expanded);
+                least = Math.min(least, expanded);
+            }
+            StdOut.printf("%2d threads: %d moves in %d ms, %d states expanded (%d to %d per worker)%n", threads,
+                    moves, millis, total, least, most);
+        }
+    }
+
+    // states sent from one worker to another, in one batch
+    private static class Batch {
+        private final long[] states = new long[BATCH];
+        private final long[] parents = new long[BATCH];
+        private final int[] steps = new int[BATCH];
+        private final int[] estimates = new int[BATCH];
+        private int size;
+        private Batch next;
+    }
+
+    private class Worker implements Runnable {
+        private final int _id;
+        private final SearchTree _nodes = new SearchTree(); // frontier entries, freed once expanded; parents are in _closed
+        private final BucketQueue _open = new BucketQueue();
+        private final StateTable _closed = new StateTable(true);
+        private final AtomicReference<Batch> _inbox = new AtomicReference<Batch>();
+        private final Batch[] _outbox = new Batch[_workers.length];
+        private long _retired; // nodes done with but not yet taken off _pending
+        private long _expanded;
+        private volatile int _frontierF = Integer.MAX_VALUE; // f of the node about to be expanded
+        private int _allowed; // f up to which nodes are expanded without looking at the others
+
+        Worker(int id) {
+            _id = id;
+        }
+
+        public void run() {
+            try {
+                search();
+            } catch (Throwable t) {
+                // the other workers stop at their next round
+                _failure = t;
+            }
+        }
+
+        private void search() {
+            int sinceFlush = 0;
+            int idle = 0;
+            while (_failure == null) {
+                drainInbox();
+                int node = -1;
+                if (!_open.isEmpty()) {
+                    node = _open.delMin();
+                    int f = _nodes.step(node) + _nodes.estimate(node);
+                    _frontierF = f;
+                    // a worker running ahead of the others would expand nodes that a search
+                    // in f order never reaches; it waits for them instead
+                    if (f > _allowed && f > (_allowed = lowestFrontier())) {
+                        _open.insert(node, f, _nodes.estimate(node));
+                        node = -1;
+                    }
+                } else {
+                    _frontierF = Integer.MAX_VALUE;
+                }
+                if (node == -1) {
+                    flushAll();
+                    retire();
+                    if (_pending.get() == 0)
+                        return;
+                    // give the cores to the busy workers when idle for long
+                    if (++idle < SPINS)
+                        Thread.yield();
+                    else
+                        LockSupport.parkNanos(IDLE_NANOS);
+                    continue;
+                }
+                idle = 0;
+                expand(node);
+                _nodes.free(node);
+                if (++sinceFlush == FLUSH_INTERVAL) {
+                    flushAll();
+                    sinceFlush = 0;
+                }
+            }
+        }
+
+        // smallest f any worker is about to expand
+        private int lowestFrontier() {
+            int lowest = Integer.MAX_VALUE;
+            for (Worker worker : _workers) {
+                lowest = Math.min(lowest, worker._frontierF);
+            }
+            return lowest;
+        }
+
+        // queues a state this worker owns, with estimate h, reached in steps moves from parent
+        void receive(long state, int steps, int h, long parent) {
+            if (!_closed.offer(state, steps, parent)) {
+                ++_retired;
+                return;
+            }
+            if (state == _goal) {
+                // only the goal's owner writes _best
+                if (steps < _best)
+                    _best = steps;
+                ++_retired;
+                return;
+            }
+            if (steps + h >= _best) {
+                ++_retired;
+                return;
+            }
+            _open.insert(_nodes.addRoot(state, steps, h), steps + h, h);
+        }
+
+        private void expand(int node) {
+            long state = _nodes.state(node);
+            int estimate = _nodes.estimate(node);
+            int step = _nodes.step(node) + 1;
+            // a shorter path to this state was found after it was queued, or the node
+            // cannot improve on the best solution any more
+            if (_closed.steps(state) < step - 1 || step - 1 + estimate >= _best) {
+                ++_retired;
+                return;
+            }
+            ++_expanded;
+            int blank = PackedBoard.blank(state, _n);
+            int children = 0;
+            for (int dir = 0; dir < 4; ++dir) {
+                int to = SearchTree.neighbour(blank, dir, _n);
+                if (to == -1)
+                    continue;
+                long next = PackedBoard.move(state, blank, to);
+                int h = _heuristic.update(state, estimate, PackedBoard.tile(state, to), to, blank);
+                if (step + h >= _best)
+                    continue;
+                ++children;
+                int w = owner(next);
+                if (w == _id)
+                    receive(next, step, h, state);
+                else
+                    send(w, next, step, h, state);
+            }
+            // the children are counted before this node is retired, so _pending cannot
+            // touch zero in between
+            if (children > 0)
+                _pending.addAndGet(children - 1);
+            else
+                ++_retired;
+        }
+
+        private void send(int w, long state, int steps, int h, long parent) {
+            Batch batch = _outbox[w];
+            if (batch == null)
+                batch = _outbox[w] = new Batch();
+            batch.states[batch.size] = state;
+            batch.steps[batch.size] = steps;
+            batch.estimates[batch.size] = h;
+            batch.parents[batch.size] = parent;
+            if (++batch.size == BATCH)
+                flush(w);
+        }
+
+        private void flush(int w) {
+            Batch batch = _outbox[w];
+            if (batch == null || batch.size == 0)
+                return;
+            _outbox[w] = null;
+            AtomicReference<Batch> inbox = _workers[w]._inbox;
+            Batch head;
+            do {
+                head = inbox.get();
+                batch.next = head;
+            } while (!inbox.compareAndSet(head, batch));
+        }
+
+        private void flushAll() {
+            for (int w = 0; w < _outbox.length; ++w) {
+                flush(w);
+            }
+        }
+
+        private void drainInbox() {
+            for (Batch batch = _inbox.getAndSet(null); batch != null; batch = batch.next) {
+                for (int i = 0; i < batch.size; ++i) {
+                    receive(batch.states[i], batch.steps[i], batch.estimates[i], batch.parents[i]);
+                }
+            }
+        }
+
+        // takes the nodes this worker is done with off _pending; delaying this is safe,
+        // it only delays the end of the search
+        private void retire() {
+            if (_retired > 0) {
+                _pending.addAndGet(-_retired);
+                _retired = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,17 @@
+// Admissible estimate of the moves left to solve a board of up to 4-by-4, for the
+// packed states of PackedBoard. The searches call update() after every move, which
+// implementations can answer without rescanning the board.
+public interface Heuristic {
+
+    // dimension n of the n-by-n boards this heuristic applies to
+    int dimension();
+
+    // lower bound on the moves from the packed state to the goal
+    int estimate(long state);
+
+    // estimate of the board reached from state, whose estimate is h, by sliding
+    // tile from position from into the blank at position to
+    default int update(long state, int h, int tile, int from, int to) {
+        return estimate(PackedBoard.move(state, to, from));
+    }
+}
@@ -0,0 +1,113 @@
+// Iterative-deepening A*: depth-first searches bounded by f = moves + estimate, each
+// pass raising the bound to the smallest f that exceeded the last one. The board is
+// changed in place (or, with a Heuristic, passed down as a packed long) and only the
+// path is stored, so memory is O(solution depth) and a pass allocates nothing.
+class IdaStar {
+    private final int _n;
+    private final int[] _tiles; // current board, row-major, changed in place
+    private final Heuristic _heuristic; // estimate of packed boards, null for the Manhattan distance of _tiles
+    private final long _state; // packed initial board when _heuristic is set
+    private final long _goal; // packed goal when _heuristic is set
+    private int[] _path; // blank position after each move of the current path
+    private final int _estimate; // estimate of the initial board
+    private int _bound; // f bound of the next pass
+    private int _nextBound; // smallest f above the bound seen during a pass
+    private int _moves; // length of the solution, -1 until found
+
+    // prepares a search from the row-major n-by-n tiles, ordered by heuristic on packed
+    // boards or, if heuristic is null, by the Manhattan distance of the tile array
+    IdaStar(int n, int[] tiles, Heuristic heuristic) {
+        _n = n;
+        _tiles = tiles.clone();
+        _heuristic = heuristic;
+        if (heuristic != null) {
+            _state = PackedBoard.pack(_tiles);
+            _goal = PackedBoard.goal(n);
+            _estimate = heuristic.estimate(_state);
+        } else {
+            _state = 0;
+            _goal = 0;
+            int manhattan = 0;
+            for (int loc = 0; loc < _tiles.length; ++loc) {
+                if (_tiles[loc] != 0)
+                    manhattan += PackedBoard.distance(_tiles[loc], loc, n);
+            }
+            _estimate = manhattan;
+        }
+        _path = new int[Math.max(_estimate, 1)];
+        _bound = _estimate;
+        _moves = -1;
+    }
+
+    // deepens until the goal is reached, which must be possible; returns the position of
+    // the blank after each move of the solution
+    int[] solve() {
+        boolean solved = deepen();
+        while (!solved)
+            solved = deepen();
+        return path();
+    }
+
+    // runs one depth-first pass with the current bound; returns true if it reached the goal,
+    // otherwise raises the bound for the next pass
+    private boolean deepen() {
+        if (_moves != -1)
+            return true;
+        int blank = 0;
+        while (_tiles[blank] != 0)
+            ++blank;
+        if (_path.length < _bound)
+            _path = new int[2 * _bound];
+        _nextBound = Integer.MAX_VALUE;
+        if (search(0, _state, _estimate, blank, -1))
+            return true;
+        _bound = _nextBound;
+        return false;
+    }
+
+    // depth-first search from the board reached after g moves, with estimate h and the
+    // blank at blank having come from prevBlank. The board is the packed state with a
+    // heuristic, else _tiles, changed in place, and h is its Manhattan distance
+    private boolean search(int g, long state, int h, int blank, int prevBlank) {
+        int f = g + h;
+        if (f > _bound) {
+            if (f < _nextBound)
+                _nextBound = f;
+            return false;
+        }
+        if (_heuristic != null ? state == _goal : h == 0) {
+            _moves = g;
+            return true;
+        }
+        for (int dir = 0; dir < 4; ++dir) {
+            int to = SearchTree.neighbour(blank, dir, _n);
+            if (to == -1)
+                continue;
+            if (to == prevBlank)
+                continue;
+            if (_heuristic != null) {
+                int next = _heuristic.update(state, h, PackedBoard.tile(state, to), to, blank);
+                _path[g] = to;
+                if (search(g + 1, PackedBoard.move(state, blank, to), next, to, blank))
+                    return true;
+                continue;
+            }
+            int tile = _tiles[to];
+            _tiles[blank] = tile;
+            _tiles[to] = 0;
+            _path[g] = to;
+            if (search(g + 1, state, h + PackedBoard.manhattanDelta(tile, to, blank, _n), to, blank))
+                return true;
+            _tiles[to] = tile;
+            _tiles[blank] = 0;
+        }
+        return false;
+    }
+
+    // position of the blank after each move of the solution
+    private int[] path() {
+        int[] path = new int[_moves];
+        System.arraycopy(_path, 0, path, 0, path.length);
+        return path;
+    }
+}
@@ -0,0 +1,82 @@
+// Manhattan distance plus linear conflicts: when tiles sit in their goal row (or
+// column) but in the wrong order, all but the longest correctly ordered subsequence
+// of them must leave the line and come back, two extra moves each.
+public class LinearConflictHeuristic implements Heuristic {
+    private final int _n;
+
+    public LinearConflictHeuristic(int n) {
+        if (n < 2 || !PackedBoard.fits(n))
+            throw new IllegalArgumentException("Size " + n + " must be between 2 and " + PackedBoard.MAX_N);
+        _n = n;
+    }
+
+    public int dimension() {
+        return _n;
+    }
+
+    public int estimate(long state) {
+        int conflicts = 0;
+        for (int line = 0; line < _n; ++line) {
+            conflicts += rowConflicts(state, line) + columnConflicts(state, line);
+        }
+        return PackedBoard.manhattan(state, _n) + 2 * conflicts;
+    }
+
+    // A tile sliding along a row keeps the order of the tiles in every row and only
+    // leaves one column for another, and likewise for a column: only two lines change
+    public int update(long state, int h, int tile, int from, int to) {
+        long next = PackedBoard.move(state, to, from);
+        int before;
+        int after;
+        if (from / _n == to / _n) {
+            before = columnConflicts(state, from % _n) + columnConflicts(state, to % _n);
+            after = columnConflicts(next, from % _n) + columnConflicts(next, to % _n);
+        } else {
+            before = rowConflicts(state, from / _n) + rowConflicts(state, to / _n);
+            after = rowConflicts(next, from / _n) + rowConflicts(next, to / _n);
+        }
+        return h + PackedBoard.manhattanDelta(tile, from, to, _n) + 2 * (after - before);
+    }
+
+    // tiles of the row in their goal row that must leave it
+    private int rowConflicts(long state, int row) {
+        int count = 0;
+        int goals = 0; // goal columns of those tiles, 4 bits each, in board order
+        for (int col = 0; col < _n; ++col) {
+            int tile = PackedBoard.tile(state, row * _n + col);
+            if (tile != 0 && (tile - 1) / _n == row)
+                goals |= (tile - 1) % _n << (count++ << 2);
+        }
+        return count - longestIncreasing(goals, count);
+    }
+
+    // tiles of the column in their goal column that must leave it
+    private int columnConflicts(long state, int col) {
+        int count = 0;
+        int goals = 0; // goal rows of those tiles, 4 bits each, in board order
+        for (int row = 0; row < _n; ++row) {
+            int tile = PackedBoard.tile(state, row * _n + col);
+            if (tile != 0 && (tile - 1) % _n == col)
+                goals |= (tile - 1) / _n << (count++ << 2);
+        }
+        return count - longestIncreasing(goals, count);
+    }
+
+    // length of the longest increasing subsequence of the first count goal positions,
+    // packed 4 bits each like the lengths found so far, so no array is needed
+    private static int longestIncreasing(int goals, int count) {
+        int lengths = 0;
+        int longest = 0;
+        for (int i = 0; i < count; ++i) {
+            int goal = goals >>> (i << 2) & 0xF;
+            int length = 1;
+            for (int j = 0; j < i; ++j) {
+                if ((goals >>> (j << 2) & 0xF) < goal)
+                    length = Math.max(length, (lengths >>> (j << 2) & 0xF) + 1);
+            }
+            lengths |= length << (i << 2);
+            longest = Math.max(longest, length);
+        }
+        return longest;
+    }
+}
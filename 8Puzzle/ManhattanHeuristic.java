@@ -0,0 +1,52 @@
+// Sum of the Manhattan distances of the tiles to their positions in a target board,
+// the goal unless another is given
+public class ManhattanHeuristic implements Heuristic {
+    private final int _n;
+    private final int[] _homeRow; // row of each tile in the target
+    private final int[] _homeCol; // column of each tile in the target
+
+    public ManhattanHeuristic(int n) {
+        this(n, PackedBoard.goal(check(n)));
+    }
+
+    // distances to the packed n-by-n target board
+    ManhattanHeuristic(int n, long target) {
+        _n = check(n);
+        _homeRow = new int[n * n];
+        _homeCol = new int[n * n];
+        for (int loc = 0; loc < n * n; ++loc) {
+            int tile = PackedBoard.tile(target, loc);
+            _homeRow[tile] = loc / n;
+            _homeCol[tile] = loc % n;
+        }
+    }
+
+    private static int check(int n) {
+        if (n < 2 || !PackedBoard.fits(n))
+            throw new IllegalArgumentException("Size " + n + " must be between 2 and " + PackedBoard.MAX_N);
+        return n;
+    }
+
+    public int dimension() {
+        return _n;
+    }
+
+    private int distance(int tile, int loc) {
+        return Math.abs(_homeRow[tile] - loc / _n) + Math.abs(_homeCol[tile] - loc % _n);
+    }
+
+    public int estimate(long state) {
+        int h = 0;
+        for (int loc = 0; loc < _n * _n; ++loc) {
+            int tile = PackedBoard.tile(state, loc);
+            if (tile != 0)
+                h += distance(tile, loc);
+        }
+        return h;
+    }
+
+    // only the moved tile changes its distance
+    public int update(long state, int h, int tile, int from, int to) {
+        return h + distance(tile, to) - distance(tile, from);
+    }
+}
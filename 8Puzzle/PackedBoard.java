@@ -0,0 +1,97 @@
+// Boards of up to 4-by-4 packed into a single long, 4 bits per tile: the tile at
+// position loc (row-major) sits in bits 4*loc .. 4*loc+3 and the blank is 0.
+// Moving the blank is a couple of shifts and masks, so the Solver can search on
+// these longs without allocating a Board per node.
+class PackedBoard {
+    static final int MAX_N = 4;
+    private static final long NIBBLES = 0x1111111111111111L; // 1 in every nibble
+
+    private PackedBoard() {
+    }
+
+    // can an n-by-n board be packed?
+    static boolean fits(int n) {
+        return n <= MAX_N;
+    }
+
+    // packs the row-major tiles
+    static long pack(int[] tiles) {
+        long state = 0;
+        for (int loc = 0; loc < tiles.length; ++loc) {
+            state |= (long) tiles[loc] << (loc << 2);
+        }
+        return state;
+    }
+
+    // row-major tiles of an n-by-n packed board
+    static int[] unpack(long state, int n) {
+        int[] tiles = new int[n * n];
+        for (int loc = 0; loc < tiles.length; ++loc) {
+            tiles[loc] = tile(state, loc);
+        }
+        return tiles;
+    }
+
+    // tile at position loc
+    static int tile(long state, int loc) {
+        return (int) (state >>> (loc << 2)) & 0xF;
+    }
+
+    // position of the blank in an n-by-n packed board
+    static int blank(long state, int n) {
+        int size = n * n;
+        for (int loc = 0; loc < size; ++loc) {
+            if (tile(state, loc) == 0)
+                return loc;
+        }
+        throw new IllegalArgumentException("The board has no blank");
+    }
+
+    // position of the tile in the packed board, which must hold it: the lowest nibble
+    // equal to tile, found by xor-ing it into every nibble and looking for a zero one.
+    // A zero nibble can only be mistaken above the first real one, so the lowest is exact
+    static int position(long state, int tile) {
+        long x = state ^ (tile * NIBBLES);
+        long zeros = (x - NIBBLES) & ~x & (NIBBLES << 3);
+        return Long.numberOfTrailingZeros(zeros) >>> 2;
+    }
+
+    // slides the tile at position to into the blank at position blank
+    static long move(long state, int blank, int to) {
+        long tile = (state >>> (to << 2)) & 0xF;
+        return (state & ~(0xFL << (to << 2))) | (tile << (blank << 2));
+    }
+
+    // the solved n-by-n board
+    static long goal(int n) {
+        int size = n * n;
+        long state = 0;
+        for (int loc = 0; loc < size - 1; ++loc) {
+            state |= (long) (loc + 1) << (loc << 2);
+        }
+        return state;
+    }
+
+    // sum of Manhattan distances between tiles and goal
+    static int manhattan(long state, int n) {
+        int size = n * n;
+        int manhattan = 0;
+        for (int loc = 0; loc < size; ++loc) {
+            int tile = tile(state, loc);
+            if (tile == 0)
+                continue;
+            manhattan += distance(tile, loc, n);
+        }
+        return manhattan;
+    }
+
+    // Manhattan distance of the non-blank tile at position loc to its goal position
+    static int distance(int tile, int loc, int n) {
+        return Math.abs((tile - 1) / n - loc / n) + Math.abs((tile - 1) % n - loc % n);
+    }
+
+    // change of the Manhattan distance when the tile at from slides to to
+    static int manhattanDelta(int tile, int from, int to, int n) {
+        return distance(tile, to, n) - distance(tile, from, n);
+    }
+}
@@ -0,0 +1,296 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import edu.princeton.cs.algs4.StdOut;
+
+// Disjoint additive pattern databases. The tiles are split into groups; for each
+// group a table holds the fewest moves of that group's tiles needed to bring them
+// home from any placement, found by a backward breadth-first search from the goal in
+// which moving any other tile is free. As every move is counted by one group at
+// most, the sum over the groups never overestimates.
+//
+// A table entry is one byte, indexed by the positions of the group's tiles, 4 bits
+// each, so the index is read straight off the tile positions. The tables are saved
+// to one file and memory-mapped by load(), so JVMs sharing the file share its pages
+// and startup reads nothing up front.
+public class PatternDatabase implements Heuristic {
+    private static final int MAGIC = 0x50444231; // "PDB1"
+    private static final int UNSEEN = 0xFF;
+
+    private final int _n;
+    private final int[][] _groups; // tiles of each group
+    private final int[] _groupOf; // group of each tile, -1 for the blank
+    private final int[] _shiftOf; // bit offset of each tile's position in its group's index
+    private final long[] _offsets; // start of each group's table in _tables
+    private final ByteBuffer _tables;
+
+    private PatternDatabase(int n, int[][] groups, ByteBuffer tables, long[] offsets) {
+        _n = n;
+        _groups = groups;
+        _groupOf = new int[n * n];
+        _shiftOf = new int[n * n];
+        Arrays.fill(_groupOf, -1);
+        for (int g = 0; g < groups.length; ++g) {
+            for (int i = 0; i < groups[g].length; ++i) {
+                _groupOf[groups[g][i]] = g;
+                _shiftOf[groups[g][i]] = i << 2;
+            }
+        }
+        _tables = tables;
+        _offsets = offsets;
+    }
+
+    // the usual partitions: 4-4 for the 8-puzzle, 6-6-3 for the 15-puzzle
+    public static int[][] defaultGroups(int n) {
+        if (n == 3)
+            return new int[][] { { 1, 2, 3, 4 }, { 5, 6, 7, 8 } };
+        if (n == 4)
+            return new int[][] { { 1, 5, 6, 9, 10, 13 }, { 7, 8, 11, 12, 14, 15 }, { 2, 3, 4 } };
+        throw new IllegalArgumentException("No default partition for size " + n);
+    }
+
+    // checks that groups partition the tiles 1 .. n*n-1 of an n-by-n board
+    private static void validate(int n, int[][] groups) {
+        if (n < 2 || !PackedBoard.fits(n))
+            throw new IllegalArgumentException("Size " + n + " must be between 2 and " + PackedBoard.MAX_N);
+        if (groups == null)
+            throw new IllegalArgumentException("Groups cannot be null");
+        boolean[] seen = new boolean[n * n];
+        int count = 0;
+        for (int[] group : groups) {
+            if (group == null || group.length == 0 || group.length > 6)
+                throw new IllegalArgumentException("Every group must hold 1 to 6 tiles");
+            for (int tile : group) {
+                if (tile < 1 || tile >= n * n || seen[tile])
+                    throw new IllegalArgumentException("Tile " + tile + " is out of range or in two groups");
+                seen[tile] = true;
+                ++count;
+            }
+        }
+        if (count != n * n - 1)
+            throw new IllegalArgumentException("The groups must cover every tile");
+    }
+
+    // computes the tables of the groups for n-by-n boards; memory is 16^(k+1) bytes
+    // for the largest group of k tiles
+    public static PatternDatabase build(int n, int[][] groups) {
+        validate(n, groups);
+        int[][] copy = new int[groups.length][];
+        long[] offsets = new long[groups.length + 1];
+        for (int g = 0; g < groups.length; ++g) {
+            copy[g] = groups[g].clone();
+            offsets[g + 1] = offsets[g] + (1L << (copy[g].length << 2));
+        }
+        ByteBuffer tables = ByteBuffer.allocate((int) offsets[groups.length]);
+        for (int g = 0; g < copy.length; ++g) {
+            byte[] table = search(n, copy[g]);
+            tables.position((int) offsets[g]);
+            tables.put(table);
+        }
+        tables.clear();
+        return new PatternDatabase(n, copy, tables, Arrays.copyOf(offsets, groups.length));
+    }
+
+    // 0-1 breadth-first search backwards from the goal over the placements of the group's
+    // tiles and the blank; moving a group tile costs 1, moving any other tile is free.
+    // Returns, for each placement of the group's tiles, the fewest moves over all blanks
+    private static byte[] search(int n, int[] group) {
+        int k = group.length;
+        int bits = k << 2;
+        byte[] distance = new byte[1 << (bits + 4)]; // index: positions << 4 | blank
+        Arrays.fill(distance, (byte) UNSEEN);
+        int goal = 0;
+        for (int i = 0; i < k; ++i) {
+            goal |= (group[i] - 1) << (i << 2);
+        }
+        int start = goal << 4 | (n * n - 1);
+        distance[start] = 0;
+        IntList current = new IntList();
+        IntList next = new IntList();
+        current.add(start);
+        int[] position = new int[k];
+        for (int depth = 0; current.size() > 0; ++depth) {
+            // free moves append to current, so the loop also covers what it adds
+            for (int q = 0; q < current.size(); ++q) {
+                int index = current.get(q);
+                if ((distance[index] & 0xFF) != depth)
+                    continue;
+                int positions = index >>> 4;
+                int blank = index & 0xF;
+                for (int i = 0; i < k; ++i) {
+                    position[i] = (positions >>> (i << 2)) & 0xF;
+                }
+                for (int dir = 0; dir < 4; ++dir) {
+                    int to = SearchTree.neighbour(blank, dir, n);
+                    if (to == -1)
+                        continue;
+                    int moved = -1;
+                    for (int i = 0; i < k; ++i) {
+                        if (position[i] == to)
+                            moved = i;
+                    }
+                    if (moved == -1) {
+                        int neighbour = positions << 4 | to;
+                        int seen = distance[neighbour] & 0xFF;
+                        if (seen > depth) {
+                            distance[neighbour] = (byte) depth;
+                            current.add(neighbour);
+                        }
+                    } else {
+                        int shift = moved << 2;
+                        int neighbour = ((positions & ~(0xF << shift)) | blank << shift) << 4 | to;
+                        if ((distance[neighbour] & 0xFF) == UNSEEN) {
+                            distance[neighbour] = (byte) (depth + 1);
+                            next.add(neighbour);
+                        }
+                    }
+                }
+            }
+            IntList done = current;
+            current = next;
+            next = done;
+            next.clear();
+        }
+        byte[] table = new byte[1 << bits];
+        Arrays.fill(table, (byte) UNSEEN);
+        for (int index = 0; index < distance.length; ++index) {
+            int d = distance[index] & 0xFF;
+            if (d < (table[index >>> 4] & 0xFF))
+                table[index >>> 4] = (byte) d;
+        }
+        return table;
+    }
+
+    // writes the partition and the tables to file
+    public void save(Path file) {
+        int header = 4 * (3 + _groups.length);
+        for (int[] group : _groups)
+            header += 4 * group.length;
+        ByteBuffer head = ByteBuffer.allocate(header).order(ByteOrder.BIG_ENDIAN);
+        head.putInt(MAGIC).putInt(_n).putInt(_groups.length);
+        for (int[] group : _groups) {
+            head.putInt(group.length);
+            for (int tile : group)
+                head.putInt(tile);
+        }
+        head.flip();
+        ByteBuffer tables = _tables.duplicate();
+        tables.clear();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (head.hasRemaining())
+                channel.write(head);
+            while (tables.hasRemaining())
+                channel.write(tables);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // maps the tables saved in file
+    public static PatternDatabase load(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < 12 || buffer.getInt() != MAGIC)
+                throw new IllegalArgumentException(file + " is not a pattern database");
+            int n = buffer.getInt();
+            int count = buffer.getInt();
+            if (n < 2 || !PackedBoard.fits(n) || count < 1 || count >= n * n)
+                throw new IllegalArgumentException(file + " has a bad header");
+            int[][] groups = new int[count][];
+            for (int g = 0; g < count; ++g) {
+                int k = buffer.getInt();
+                if (k < 1 || k > 6)
+                    throw new IllegalArgumentException(file + " has a bad header");
+                groups[g] = new int[k];
+                for (int i = 0; i < k; ++i)
+                    groups[g][i] = buffer.getInt();
+            }
+            validate(n, groups);
+            long[] offsets = new long[count];
+            long size = 0;
+            for (int g = 0; g < count; ++g) {
+                offsets[g] = size;
+                size += 1L << (groups[g].length << 2);
+            }
+            if (buffer.remaining() != size)
+                throw new IllegalArgumentException(file + " is truncated");
+            return new PatternDatabase(n, groups, buffer.slice(), offsets);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public int dimension() {
+        return _n;
+    }
+
+    // index of group g in the packed state, read off the positions of its tiles
+    private int index(int g, long state) {
+        int index = 0;
+        for (int tile : _groups[g])
+            index |= PackedBoard.position(state, tile) << _shiftOf[tile];
+        return index;
+    }
+
+    private int lookup(int g, int index) {
+        return _tables.get((int) (_offsets[g] + index)) & 0xFF;
+    }
+
+    public int estimate(long state) {
+        int h = 0;
+        for (int g = 0; g < _groups.length; ++g)
+            h += lookup(g, index(g, state));
+        return h;
+    }
+
+    // only the moved tile's group changes
+    public int update(long state, int h, int tile, int from, int to) {
+        int g = _groupOf[tile];
+        int index = index(g, state);
+        int moved = (index & ~(0xF << _shiftOf[tile])) | to << _shiftOf[tile];
+        return h - lookup(g, index) + lookup(g, moved);
+    }
+
+    // growable list of ints, the queues of the search
+    private static class IntList {
+        private int[] _items = new int[1 << 10];
+        private int _size;
+
+        void add(int item) {
+            if (_size == _items.length)
+                _items = Arrays.copyOf(_items, 2 * _size);
+            _items[_size++] = item;
+        }
+
+        int get(int i) {
+            return _items[i];
+        }
+
+        int size() {
+            return _size;
+        }
+
+        void clear() {
+            _size = 0;
+        }
+    }
+
+    // builds the default tables for n-by-n boards and saves them: java PatternDatabase n file
+    public static void main(String[] args) {
+        int n = Integer.parseInt(args[0]);
+        long start = System.nanoTime();
+        PatternDatabase database = build(n, defaultGroups(n));
+        database.save(Paths.get(args[1]));
+        StdOut.printf("built %d-by-%d tables in %.1f s%n", n, n, (System.nanoTime() - start) / 1e9);
+        PatternDatabase loaded = load(Paths.get(args[1]));
+        StdOut.println("goal estimate = " + loaded.estimate(PackedBoard.goal(n)));
+    }
+}
@@ -0,0 +1,128 @@
+import java.util.Arrays;
+
+// Nodes of an A* search held in parallel primitive arrays rather than one object each:
+// node i has its packed state (0 for boards too large to pack), a link holding its
+// parent's index and the 2-bit direction the blank moved to reach it, and its moves
+// and estimate. About 16 bytes a node, and the frontier holds plain int indices. The
+// path to a node is read back through the links as the blank's directions.
+//
+// A search that keeps its paths elsewhere (in a StateTable) can free a node once it is
+// off the frontier; freed slots are handed out again, so the arrays only grow with the
+// size of the frontier. Moves and estimates are stored as shorts and must fit.
+class SearchTree {
+    static final int LEFT = 0;
+    static final int RIGHT = 1;
+    static final int UP = 2;
+    static final int DOWN = 3;
+
+    private long[] _states;
+    private int[] _links; // parent << 2 | direction, -1 at a root; next free slot of a freed node
+    private short[] _steps;
+    private short[] _estimates;
+    private int _size; // slots handed out at least once
+    private int _free; // last freed slot, -1 if none
+
+    SearchTree() {
+        _states = new long[1 << 10];
+        _links = new int[_states.length];
+        _steps = new short[_states.length];
+        _estimates = new short[_states.length];
+        _size = 0;
+        _free = -1;
+    }
+
+    // adds a node with no parent here, reached in step moves; returns its index
+    int addRoot(long state, int step, int estimate) {
+        return append(state, -1, estimate, step);
+    }
+
+    // adds the node reached from parent by moving the blank in direction; returns its index
+    int add(long state, int parent, int direction, int estimate) {
+        return append(state, parent << 2 | direction, estimate, _steps[parent] + 1);
+    }
+
+    private int append(long state, int link, int estimate, int step) {
+        if (step > Short.MAX_VALUE || estimate > Short.MAX_VALUE)
+            throw new IllegalArgumentException("Moves " + step + " or estimate " + estimate + " do not fit a short");
+        if (_free != -1) {
+            int node = _free;
+            _free = _links[node];
+            set(node, state, link, estimate, step);
+            return node;
+        }
+        if (_size == _states.length) {
+            int length = 2 * _size;
+            _states = Arrays.copyOf(_states, length);
+            _links = Arrays.copyOf(_links, length);
+            _steps = Arrays.copyOf(_steps, length);
+            _estimates = Arrays.copyOf(_estimates, length);
+        }
+        set(_size, state, link, estimate, step);
+        return _size++;
+    }
+
+    private void set(int node, long state, int link, int estimate, int step) {
+        _states[node] = state;
+        _links[node] = link;
+        _steps[node] = (short) step;
+        _estimates[node] = (short) estimate;
+    }
+
+    // hands the slot of node out again; no node may link to it
+    void free(int node) {
+        _links[node] = _free;
+        _free = node;
+    }
+
+    long state(int node) {
+        return _states[node];
+    }
+
+    int step(int node) {
+        return _steps[node];
+    }
+
+    int estimate(int node) {
+        return _estimates[node];
+    }
+
+    // direction of the blank move from position from to the adjacent position to of an
+    // n-by-n board
+    static int direction(int from, int to, int n) {
+        if (to == from - 1)
+            return LEFT;
+        if (to == from + 1)
+            return RIGHT;
+        return to < from ? UP : DOWN;
+    }
+
+    // position the blank reaches by moving from blank in direction on an n-by-n board, -1
+    // if that is off the board
+    static int neighbour(int blank, int direction, int n) {
+        if (direction == LEFT)
+            return blank % n > 0 ? blank - 1 : -1;
+        if (direction == RIGHT)
+            return blank % n < n - 1 ? blank + 1 : -1;
+        if (direction == UP)
+            return blank >= n ? blank - n : -1;
+        return blank < n * n - n ? blank + n : -1;
+    }
+
+    // positions of the blank after each move from the root to node, of an n-by-n board
+    // whose root, reached in 0 moves, has the blank at rootBlank
+    int[] blanks(int node, int rootBlank, int n) {
+        int[] blanks = new int[_steps[node]];
+        for (int i = blanks.length - 1, link = _links[node]; i >= 0; --i, link = _links[link >>> 2]) {
+            // a root added with moves of its own has no path back to the start here
+            if (link == -1)
+                throw new IllegalStateException("Node " + node + " does not lead back to a root reached in 0 moves");
+            blanks[i] = link & 3;
+        }
+        int blank = rootBlank;
+        for (int i = 0; i < blanks.length; ++i) {
+            blank = neighbour(blank, blanks[i], n);
+            blanks[i] = blank;
+        }
+        return blanks;
+    }
+}
@@ -0,0 +1,349 @@
+import java.util.Arrays;
+
+// Simplified memory-bounded A* (SMA*) on packed boards: A* that never holds more than a
+// fixed number of nodes. When a new node would go over the budget, the worst leaf (highest
+// f, then shallowest) is dropped and its f is remembered by its parent, which goes back
+// on the frontier so the dropped subtree can be regenerated if it becomes the best again.
+// Every node's f is kept as the least f below it, so the frontier still picks nodes in A*
+// order and the first goal picked is optimal among paths of at most maxNodes - 1 moves.
+// A node whose f is at least the budget cannot be on a solution that fits, so its f is
+// infinite; when that is the best left, no solution fits and the search reports it
+// instead of running out of heap.
+//
+// The frontier and the leaves are binary heaps of slot indices with the position of
+// every slot, so a node is found, re-keyed or removed in O(log n) without boxing.
+class SmaStar {
+    private static final int INFINITE = Integer.MAX_VALUE;
+    private static final int NONE = -1;
+    // bytes per slot: state 8, steps, estimate, f and parent 4 each, direction and
+    // dropped mask 1 each, children and forgotten 16 each, free stack 4, and a heap
+    // entry and position in both heaps 16
+    private static final int NODE_BYTES = 78;
+
+    private final int _n;
+    private final Heuristic _heuristic;
+    private final long _goal;
+    private final int _maxNodes;
+    // node slots, in parallel arrays grown as needed up to the budget
+    private long[] _states;
+    private int[] _steps;
+    private int[] _estimates;
+    private int[] _f; // least f below the node, INFINITE if no goal fits below it
+    private int[] _parent;
+    private byte[] _direction; // direction of the blank move from the parent
+    private int[] _children; // 4 per node: child in each direction, NONE if not in memory
+    private int[] _forgotten; // 4 per node: f of each dropped child
+    private byte[] _dropped; // per node: mask of directions whose child was dropped
+    private int[] _free; // stack of free slots
+    private int _freeCount;
+    private int _used; // slots handed out at least once
+    private final NodeHeap _open; // nodes with a successor not in memory, best first
+    private final NodeHeap _leaves; // nodes with no child in memory, all in _open too, worst first
+
+    // prepares a search of the packed state start, ordered by heuristic, holding at most
+    // maxNodes nodes
+    SmaStar(long start, Heuristic heuristic, int maxNodes) {
+        if (maxNodes < 2)
+            throw new IllegalArgumentException("Node budget " + maxNodes + " must be at least 2");
+        _n = heuristic.dimension();
+        _heuristic = heuristic;
+        _goal = PackedBoard.goal(_n);
+        _maxNodes = maxNodes;
+        resize(Math.min(maxNodes, 1 << 10));
+        _freeCount = 0;
+        _used = 0;
+        _open = new NodeHeap(1);
+        _leaves = new NodeHeap(-1);
+        int root = allocate(start, 0, NONE, 0);
+        _estimates[root] = heuristic.estimate(start);
+        _f[root] = fit(_estimates[root]);
+        _open.add(root);
+        _leaves.add(root);
+    }
+
+    // a solution of f moves holds f + 1 nodes, so one that cannot fit is as good as none
+    private int fit(int f) {
+        return f < _maxNodes ? f : INFINITE;
+    }
+
+    // runs the search; returns the positions of the blank after each move of a shortest
+    // solution, or null if no solution fits in the budget
+    int[] solve() {
+        while (!_open.isEmpty()) {
+            int best = _open.top();
+            if (_f[best] == INFINITE)
+                return null;
+            if (_states[best] == _goal)
+                return path(best);
+            expand(best);
+        }
+        return null;
+    }
+
+    // node budget taking about a quarter of the maximum heap
+    static int defaultBudget() {
+        long nodes = Runtime.getRuntime().maxMemory() / 4 / NODE_BYTES;
+        return (int) Math.max(2, Math.min(nodes, Integer.MAX_VALUE / 4));
+    }
+
+    private void resize(int length) {
+        _states = _states == null ? new long[length] : Arrays.copyOf(_states, length);
+        _steps = _steps == null ? new int[length] : Arrays.copyOf(_steps, length);
+        _estimates = _estimates == null ? new int[length] : Arrays.copyOf(_estimates, length);
+        _f = _f == null ? new int[length] : Arrays.copyOf(_f, length);
+        _parent = _parent == null ? new int[length] : Arrays.copyOf(_parent, length);
+        _direction = _direction == null ? new byte[length] : Arrays.copyOf(_direction, length);
+        _children = _children == null ? new int[4 * length] : Arrays.copyOf(_children, 4 * length);
+        _forgotten = _forgotten == null ? new int[4 * length] : Arrays.copyOf(_forgotten, 4 * length);
+        _dropped = _dropped == null ? new byte[length] : Arrays.copyOf(_dropped, length);
+        _free = _free == null ? new int[length] : Arrays.copyOf(_free, length);
+    }
+
+    // is every slot of the budget taken?
+    private boolean isFull() {
+        return _freeCount == 0 && _used == _maxNodes;
+    }
+
+    private int allocate(long state, int steps, int parent, int direction) {
+        int node;
+        if (_freeCount > 0) {
+            node = _free[--_freeCount];
+        } else {
+            if (_used == _states.length)
+                resize((int) Math.min(_maxNodes, 2L * _used));
+            node = _used++;
+        }
+        _states[node] = state;
+        _steps[node] = steps;
+        _parent[node] = parent;
+        _direction[node] = (byte) direction;
+        _dropped[node] = 0;
+        Arrays.fill(_children, 4 * node, 4 * node + 4, NONE);
+        return node;
+    }
+
+    // the move that would undo direction
+    private static int reverse(int direction) {
+        return direction ^ 1;
+    }
+
+    // can node move its blank in direction? Moving back to the parent is never useful
+    private boolean isSuccessor(int node, int blank, int direction) {
+        if (SearchTree.neighbour(blank, direction, _n) == -1)
+            return false;
+        return _parent[node] == NONE || direction != reverse(_direction[node]);
+    }
+
+    // generates every successor of node not in memory, dropping leaves to stay in budget.
+    // The node is kept off _leaves meanwhile, so it is never the leaf dropped for its own child
+    private void expand(int node) {
+        long state = _states[node];
+        int blank = PackedBoard.blank(state, _n);
+        _leaves.remove(node);
+        for (int dir = 0; dir < 4; ++dir) {
+            if (!isSuccessor(node, blank, dir) || _children[4 * node + dir] != NONE)
+                continue;
+            int to = SearchTree.neighbour(blank, dir, _n);
+            long next = PackedBoard.move(state, blank, to);
+            int h = _heuristic.update(state, _estimates[node], PackedBoard.tile(state, to), to, blank);
+            int f;
+            if ((_dropped[node] & (1 << dir)) != 0) {
+                f = _forgotten[4 * node + dir];
+                _dropped[node] &= ~(1 << dir);
+            } else {
+                // pathmax keeps f from decreasing along a path
+                f = fit(Math.max(_f[node], _steps[node] + 1 + h));
+            }
+            // a successor no better than any leaf in memory would only push out a better
+            // node, and one that cannot be on a solution is never worth a slot: only its f
+            // is kept
+            if (f == INFINITE || isFull() && !dropWorstLeaf(node, f)) {
+                forget(node, dir, f);
+                continue;
+            }
+            int child = allocate(next, _steps[node] + 1, node, dir);
+            _estimates[child] = h;
+            _f[child] = f;
+            _children[4 * node + dir] = child;
+            _open.add(child);
+            _leaves.add(child);
+        }
+        if (!hasChildren(node))
+            _leaves.add(node);
+        if (isComplete(node, blank))
+            _open.remove(node);
+        backUp(node);
+    }
+
+    // is every successor of node in memory?
+    private boolean isComplete(int node, int blank) {
+        for (int dir = 0; dir < 4; ++dir) {
+            if (isSuccessor(node, blank, dir) && _children[4 * node + dir] == NONE)
+                return false;
+        }
+        return true;
+    }
+
+    // drops the worst leaf, unless its f is below f, and remembers its f in its parent;
+    // returns false if none was dropped. keep, the node being expanded, is not on
+    // _leaves, and the root is only a leaf when it is the one node in memory
+    private boolean dropWorstLeaf(int keep, int f) {
+        if (_leaves.isEmpty())
+            return false;
+        int leaf = _leaves.top();
+        if (_parent[leaf] == NONE || _f[leaf] < f)
+            return false;
+        int parent = _parent[leaf];
+        int dir = _direction[leaf];
+        _open.remove(leaf);
+        _leaves.remove(leaf);
+        _children[4 * parent + dir] = NONE;
+        forget(parent, dir, _f[leaf]);
+        _free[_freeCount++] = leaf;
+        // the parent can regenerate the leaf, so it is on the frontier again
+        _open.add(parent);
+        if (parent != keep && !hasChildren(parent))
+            _leaves.add(parent);
+        return true;
+    }
+
+    // records the successor of node in direction as not in memory, with the given f
+    private void forget(int node, int direction, int f) {
+        _forgotten[4 * node + direction] = f;
+        _dropped[node] |= 1 << direction;
+    }
+
+    private boolean hasChildren(int node) {
+        for (int dir = 0; dir < 4; ++dir) {
+            if (_children[4 * node + dir] != NONE)
+                return true;
+        }
+        return false;
+    }
+
+    // sets the f of node and its ancestors to the least f of their successors, in memory
+    // or dropped; every successor of an expanded node is one or the other
+    private void backUp(int node) {
+        while (node != NONE) {
+            int least = INFINITE;
+            for (int dir = 0; dir < 4; ++dir) {
+                int child = _children[4 * node + dir];
+                if (child != NONE)
+                    least = Math.min(least, _f[child]);
+                if ((_dropped[node] & (1 << dir)) != 0)
+                    least = Math.min(least, _forgotten[4 * node + dir]);
+            }
+            if (least == _f[node])
+                return;
+            boolean queued = _open.remove(node);
+            boolean leaf = _leaves.remove(node);
+            _f[node] = least;
+            if (queued)
+                _open.add(node);
+            if (leaf)
+                _leaves.add(node);
+            node = _parent[node];
+        }
+    }
+
+    // positions of the blank after each move from the root to node
+    private int[] path(int node) {
+        int[] blanks = new int[_steps[node]];
+        for (int i = blanks.length - 1; i >= 0; --i, node = _parent[node]) {
+            blanks[i] = PackedBoard.blank(_states[node], _n);
+        }
+        return blanks;
+    }
+
+    // lowest f first, then deepest, so ties go on down the current path; then by slot
+    private int compare(int a, int b) {
+        if (_f[a] != _f[b])
+            return _f[a] < _f[b] ? -1 : 1;
+        if (_steps[a] != _steps[b])
+            return _steps[a] > _steps[b] ? -1 : 1;
+        return Integer.compare(a, b);
+    }
+
+    // binary heap of slots in compare() order times sign, with the index of each slot in
+    // the heap so that any slot can be removed
+    private class NodeHeap {
+        private final int _sign; // 1 for the least slot on top, -1 for the greatest
+        private int[] _heap = new int[16];
+        private int[] _index = new int[0]; // position of each slot in _heap, -1 if absent
+        private int _size;
+
+        NodeHeap(int sign) {
+            _sign = sign;
+        }
+
+        boolean isEmpty() {
+            return _size == 0;
+        }
+
+        int top() {
+            return _heap[0];
+        }
+
+        // adds slot unless it is in the heap already
+        void add(int slot) {
+            if (slot >= _index.length) {
+                int length = _index.length;
+                _index = Arrays.copyOf(_index, Math.max(2 * length, slot + 1));
+                Arrays.fill(_index, length, _index.length, -1);
+            }
+            if (_index[slot] != -1)
+                return;
+            if (_size == _heap.length)
+                _heap = Arrays.copyOf(_heap, 2 * _size);
+            place(slot, _size++);
+            siftUp(_index[slot]);
+        }
+
+        // removes slot; returns whether it was in the heap
+        boolean remove(int slot) {
+            if (slot >= _index.length || _index[slot] == -1)
+                return false;
+            int i = _index[slot];
+            _index[slot] = -1;
+            int last = _heap[--_size];
+            if (i < _size) {
+                place(last, i);
+                siftUp(i);
+                siftDown(_index[last]);
+            }
+            return true;
+        }
+
+        private boolean before(int a, int b) {
+            return _sign * compare(a, b) < 0;
+        }
+
+        private void place(int slot, int i) {
+            _heap[i] = slot;
+            _index[slot] = i;
+        }
+
+        private void siftUp(int i) {
+            int slot = _heap[i];
+            while (i > 0 && before(slot, _heap[(i - 1) >>> 1])) {
+                place(_heap[(i - 1) >>> 1], i);
+                i = (i - 1) >>> 1;
+            }
+            place(slot, i);
+        }
+
+        private void siftDown(int i) {
+            int slot = _heap[i];
+            while (2 * i + 1 < _size) {
+                int child = 2 * i + 1;
+                if (child + 1 < _size && before(_heap[child + 1], _heap[child]))
+                    ++child;
+                if (!before(_heap[child], slot))
+                    break;
+                place(_heap[child], i);
+                i = child;
+            }
+            place(slot, i);
+        }
+    }
+}
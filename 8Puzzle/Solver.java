@@ -1,143 +1,352 @@
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
 import edu.princeton.cs.algs4.In;
-import edu.princeton.cs.algs4.MinPQ;
-import edu.princeton.cs.algs4.Stack;
 import edu.princeton.cs.algs4.StdOut;
 
 public class Solver {
+    // search algorithm used by the solver
+    public enum Mode {
+        // A* with a closed set; fastest, memory grows with the frontier
+        ASTAR,
+        // iterative-deepening A*; slower, memory is O(solution depth)
+        IDA_STAR,
+        // hash-distributed parallel A* on boards of up to 4-by-4
+        HDA_STAR,
+        // A* from both ends at once on boards of up to 4-by-4; the backward search is
+        // ordered by Manhattan distance whatever the heuristic
+        BIDIRECTIONAL,
+        // memory-bounded A* (SMA*) on boards of up to 4-by-4, holding at most a fixed
+        // number of nodes; slower once the budget is full, but never runs out of heap
+        SMA_STAR
+    }
+
+    private final Board _initial;
     private int _steps;
-    private Stack<Board> _solution;
+    private int[] _blanks; // position of the blank after each move of the solution
+    private boolean _overBudget; // solvable, but no solution fits in the SMA_STAR node budget
 
     // find a solution to the initial board (using the A* algorithm)
     public Solver(Board initial) {
+        this(initial, Mode.ASTAR);
+    }
+
+    // find a solution to the initial board using the given search algorithm
+    public Solver(Board initial, Mode mode) {
+        this(initial, mode, null);
+    }
+
+    // find a solution to the initial board using the given search algorithm, ordered by
+    // heuristic (Manhattan distance if null); a heuristic only applies to boards of up
+    // to 4-by-4 of its dimension
+    public Solver(Board initial, Mode mode, Heuristic heuristic) {
+        this(initial, mode, heuristic, Runtime.getRuntime().availableProcessors());
+    }
+
+    // as above, running HDA_STAR on the given number of threads
+    public Solver(Board initial, Mode mode, Heuristic heuristic, int threads) {
+        this(initial, mode, heuristic, threads, SmaStar.defaultBudget());
+    }
+
+    // find a solution to the initial board with SMA_STAR, ordered by heuristic (Manhattan
+    // distance if null), holding at most maxNodes nodes
+    public static Solver smaStar(Board initial, Heuristic heuristic, int maxNodes) {
+        return new Solver(initial, Mode.SMA_STAR, heuristic, 1, maxNodes);
+    }
+
+    private Solver(Board initial, Mode mode, Heuristic heuristic, int threads, int maxNodes) {
         if (initial == null) {
             throw new IllegalArgumentException("Cannot build a solver with null board");
         }
+        if (mode == null) {
+            throw new IllegalArgumentException("Cannot build a solver with null mode");
+        }
+        int n = initial.dimension();
+        if (heuristic != null && heuristic.dimension() != n) {
+            throw new IllegalArgumentException("Heuristic for size " + heuristic.dimension() + " cannot solve size " + n);
+        }
+        if (threads < 1) {
+            throw new IllegalArgumentException("Number of threads " + threads + " must be positive");
+        }
+        if (maxNodes < 2) {
+            throw new IllegalArgumentException("Node budget " + maxNodes + " must be at least 2");
+        }
+        if ((mode == Mode.HDA_STAR || mode == Mode.BIDIRECTIONAL || mode == Mode.SMA_STAR) && !PackedBoard.fits(n)) {
+            throw new IllegalArgumentException(mode + " cannot solve a " + n + "-by-" + n + " board");
+        }
+        if (heuristic == null && PackedBoard.fits(n)) {
+            heuristic = new ManhattanHeuristic(n);
+        }
+        _initial = initial;
         _steps = -1;
-        _solution = null;
+        _blanks = null;
+        _overBudget = false;
         if (initial.isGoal()) {
-            _steps = 0;
-            _solution = new Stack<Board>();
-            _solution.push(initial);
+            setSolution(new int[0]);
             return;
         }
-        MinPQ<SolverStep> priorityQueue = new MinPQ<SolverStep>();
-        MinPQ<SolverStep> priorityQueueTwin = new MinPQ<SolverStep>();
-        priorityQueue.insert(new SolverStep(initial, 0, null));
-        priorityQueueTwin.insert(new SolverStep(initial.twin(), 0, null));
-        while (!priorityQueue.isEmpty() && !priorityQueueTwin.isEmpty()) {
-            SolverStep topItem = priorityQueue.delMin();
-            SolverStep topItemTwin = priorityQueueTwin.delMin();
-            Board currentBoard = topItem.board();
-            Board currentBoardTwin = topItemTwin.board();
-            Board prevBoard = topItem.prevStep() == null ? null : topItem.prevStep().board();
-            Board prevBoardTwin = topItemTwin.prevStep() == null ? null : topItemTwin.prevStep().board();
-            int step = topItem.step();
-            int stepTwin = topItemTwin.step();
-            for (Board n : currentBoard.neighbors()) {
-                if (n.equals(prevBoard))
-                    continue;
-                SolverStep nextStep = new SolverStep(n, step + 1, topItem);
-                if (n.isGoal()) {
-                    _steps = nextStep.step();
-                    _solution = new Stack<Board>();
-                    _solution.push(nextStep.board());
-                    SolverStep prev = nextStep.prevStep();
-                    while (prev != null) {
-                        _solution.push(prev.board());
-                        prev = prev.prevStep();
-                    }
-                    return;
-                }
-                priorityQueue.insert(nextStep);
-            }
-            for (Board n : currentBoardTwin.neighbors()) {
-                if (n.equals(prevBoardTwin))
-                    continue;
-                if (n.isGoal()) {
-                    return;
-                }
-                priorityQueueTwin.insert(new SolverStep(n, stepTwin + 1, topItemTwin));
-            }
-        }
+        // no search can reach the goal, whatever its algorithm
+        if (!initial.isSolvable())
+            return;
+        if (mode == Mode.IDA_STAR)
+            solveIdaStar(initial, heuristic);
+        else if (mode == Mode.HDA_STAR)
+            solveHdaStar(initial, heuristic, threads);
+        else if (mode == Mode.BIDIRECTIONAL)
+            solveBidirectional(initial, heuristic);
+        else if (mode == Mode.SMA_STAR)
+            solveSmaStar(initial, heuristic, maxNodes);
+        else if (PackedBoard.fits(n))
+            solvePacked(initial, heuristic);
+        else
+            solveBoards(initial);
     }
 
-    private class SolverStep implements Comparable<SolverStep> {
-        private final Board currentBoard;
-        private final int manhattan;
-        private final int step;
-        private final SolverStep prevStep;
+    // IDA* on the solvable board, deepening until the goal is reached
+    private void solveIdaStar(Board initial, Heuristic heuristic) {
+        setSolution(new IdaStar(initial.dimension(), initial.tiles(), heuristic).solve());
+    }
 
-        public SolverStep(Board thisBoard, int s, SolverStep prev) {
-            currentBoard = thisBoard;
-            manhattan = thisBoard.manhattan();
-            step = s;
-            prevStep = prev;
-        }
+    // HDA* on the solvable board, threads workers each owning a share of the states
+    private void solveHdaStar(Board initial, Heuristic heuristic, int threads) {
+        setSolution(new HdaStar(initial.packed(), heuristic, threads).solve(), initial.dimension());
+    }
 
-        public int compareTo(SolverStep o) {
-            int thisPriority = this.manhattan() + this.step();
-            int thatPriority = o.manhattan() + o.step();
-            if (thisPriority == thatPriority) {
-                if (this.manhattan() < o.manhattan())
-                    return -1;
-                else if (this.manhattan() > o.manhattan())
-                    return 1;
-                else
-                    return 0;
-            } else if (thisPriority < thatPriority)
-                return -1;
-            else
-                return 1;
-        }
+    // bidirectional A* on the solvable board
+    private void solveBidirectional(Board initial, Heuristic heuristic) {
+        setSolution(new Bidirectional(initial.packed(), heuristic).solve(), initial.dimension());
+    }
+
+    // SMA* on the solvable board; no solution if none fits in maxNodes nodes
+    private void solveSmaStar(Board initial, Heuristic heuristic, int maxNodes) {
+        int[] blanks = new SmaStar(initial.packed(), heuristic, maxNodes).solve();
+        if (blanks == null)
+            _overBudget = true;
+        else
+            setSolution(blanks);
+    }
 
-        public Board board() {
-            return currentBoard;
+    // the solution through the packed n-by-n states, from initial to goal
+    private void setSolution(long[] states, int n) {
+        int[] blanks = new int[states.length - 1];
+        for (int i = 0; i < blanks.length; ++i) {
+            blanks[i] = PackedBoard.blank(states[i + 1], n);
         }
+        setSolution(blanks);
+    }
+
+    // the solution moving the blank of initial to each position of blanks in turn
+    private void setSolution(int[] blanks) {
+        _steps = blanks.length;
+        _blanks = blanks;
+    }
 
-        public int step() {
-            return step;
+    // A* on packed states of the solvable board, its nodes in a SearchTree. The closed set
+    // keeps the fewest moves found to every state, so a state reached again by a path that
+    // is no shorter is dropped
+    private void solvePacked(Board initial, Heuristic heuristic) {
+        int n = initial.dimension();
+        long goalState = PackedBoard.goal(n);
+        SearchTree tree = new SearchTree();
+        BucketQueue priorityQueue = new BucketQueue();
+        StateTable closed = new StateTable();
+        long start = initial.packed();
+        int estimate = heuristic.estimate(start);
+        closed.offer(start, 0);
+        priorityQueue.insert(tree.addRoot(start, 0, estimate), estimate, estimate);
+        while (!priorityQueue.isEmpty()) {
+            int goal = expand(tree, priorityQueue, closed, heuristic, goalState);
+            if (goal != -1) {
+                setSolution(tree.blanks(goal, initial.blank(), n));
+                return;
+            }
         }
+    }
 
-        public SolverStep prevStep() {
-            return prevStep;
+    // expands the best node of priorityQueue, returns the goal node if one was reached or -1
+    private static int expand(SearchTree tree, BucketQueue priorityQueue, StateTable closed, Heuristic heuristic,
+            long goalState) {
+        int n = heuristic.dimension();
+        int node = priorityQueue.delMin();
+        long state = tree.state(node);
+        int step = tree.step(node) + 1;
+        // a shorter path to this state was found after it was queued
+        if (closed.steps(state) < step - 1)
+            return -1;
+        int blank = PackedBoard.blank(state, n);
+        for (int dir = 0; dir < 4; ++dir) {
+            int to = SearchTree.neighbour(blank, dir, n);
+            if (to == -1)
+                continue;
+            long next = PackedBoard.move(state, blank, to);
+            if (!closed.offer(next, step))
+                continue;
+            int estimate = heuristic.update(state, tree.estimate(node), PackedBoard.tile(state, to), to, blank);
+            int child = tree.add(next, node, dir, estimate);
+            if (next == goalState)
+                return child;
+            priorityQueue.insert(child, step + estimate, estimate);
         }
+        return -1;
+    }
 
-        public int manhattan() {
-            return manhattan;
+    // A* on Board objects for solvable boards too large to pack; the nodes are in a
+    // SearchTree, with the boards of the nodes not expanded yet alongside
+    private void solveBoards(Board initial) {
+        int n = initial.dimension();
+        SearchTree tree = new SearchTree();
+        List<Board> boards = new ArrayList<Board>();
+        BucketQueue priorityQueue = new BucketQueue();
+        Map<Board, Integer> closed = new HashMap<Board, Integer>();
+        priorityQueue.insert(tree.addRoot(0, 0, initial.manhattan()), initial.manhattan(), initial.manhattan());
+        boards.add(initial);
+        closed.put(initial, 0);
+        while (!priorityQueue.isEmpty()) {
+            int node = priorityQueue.delMin();
+            Board currentBoard = boards.set(node, null);
+            int step = tree.step(node);
+            // a shorter path to this board was found after it was queued
+            if (closed.get(currentBoard) < step)
+                continue;
+            int blank = currentBoard.blank();
+            for (Board next : currentBoard.neighbors()) {
+                if (!offer(closed, next, step + 1))
+                    continue;
+                int child = tree.add(0, node, SearchTree.direction(blank, next.blank(), n), next.manhattan());
+                boards.add(next);
+                if (next.isGoal()) {
+                    setSolution(tree.blanks(child, initial.blank(), n));
+                    return;
+                }
+                priorityQueue.insert(child, step + 1 + next.manhattan(), next.manhattan());
+            }
         }
     }
 
+    // records board as reached in steps moves unless it was reached in as few
+    private static boolean offer(Map<Board, Integer> closed, Board board, int steps) {
+        Integer best = closed.get(board);
+        if (best != null && best <= steps)
+            return false;
+        closed.put(board, steps);
+        return true;
+    }
+
     // is the initial board solvable? (see below)
     public boolean isSolvable() {
-        return _steps != -1;
+        return _steps != -1 || _overBudget;
+    }
+
+    // is the initial board solvable but its solutions too long for the SMA_STAR node
+    // budget? moves() is then -1 and solution() null
+    public boolean isOverBudget() {
+        return _overBudget;
     }
 
-    // min number of moves to solve initial board; -1 if unsolvable
+    // min number of moves to solve initial board; -1 if unsolvable or over budget
     public int moves() {
         return _steps;
     }
 
-    // sequence of boards in a shortest solution; null if unsolvable
+    // sequence of boards in a shortest solution; null if unsolvable or over budget. Only the moves are
+    // kept: the boards are rebuilt as the sequence is iterated
     public Iterable<Board> solution() {
-        return _solution;
+        if (_blanks == null)
+            return null;
+        return replay(_initial, _blanks);
     }
 
-    // test client (see below)
-    public static void main(String[] args) {
-        // create initial board from file
-        In in = new In(args[0]);
+    // boards from initial through each move of its blank to the positions of blanks
+    static Iterable<Board> replay(final Board initial, final int[] blanks) {
+        return new Iterable<Board>() {
+            public Iterator<Board> iterator() {
+                return new Replay(initial, blanks);
+            }
+        };
+    }
+
+    // boards of a solution, made by moving the blank of the initial board in turn
+    private static class Replay implements Iterator<Board> {
+        private final Board _initial;
+        private final int[] _blanks;
+        private final int[] _tiles;
+        private int _blank;
+        private int _next = -1; // index in _blanks of the next move, -1 before the initial board
+
+        Replay(Board initial, int[] blanks) {
+            _initial = initial;
+            _blanks = blanks;
+            _tiles = initial.tiles();
+            _blank = initial.blank();
+        }
+
+        public boolean hasNext() {
+            return _next < _blanks.length;
+        }
+
+        public Board next() {
+            if (!hasNext())
+                throw new NoSuchElementException("No more boards in the solution");
+            if (_next == -1) {
+                ++_next;
+                return _initial;
+            }
+            int to = _blanks[_next++];
+            _tiles[_blank] = _tiles[to];
+            _tiles[to] = 0;
+            _blank = to;
+            return Board.fromTiles(_initial.dimension(), _tiles);
+        }
+    }
+
+    // board read from file: its size n, then its n*n tiles row by row
+    static Board readBoard(String file) {
+        In in = new In(file);
         int n = in.readInt();
         int[][] tiles = new int[n][n];
         for (int i = 0; i < n; i++)
             for (int j = 0; j < n; j++)
                 tiles[i][j] = in.readInt();
-        Board initial = new Board(tiles);
+        return new Board(tiles);
+    }
+
+    // heuristic named by name: manhattan (null, the default of every search), linear for
+    // LinearConflictHeuristic on n-by-n boards, or else a pattern database file
+    static Heuristic heuristic(String name, int n) {
+        if (name.equals("manhattan"))
+            return null;
+        if (name.equals("linear"))
+            return new LinearConflictHeuristic(n);
+        return PatternDatabase.load(Paths.get(name));
+    }
+
+    // test client (see below)
+    public static void main(String[] args) {
+        // create initial board from file
+        Board initial = readBoard(args[0]);
 
-        // solve the puzzle
-        Solver solver = new Solver(initial);
+        // solve the puzzle, optionally with the search mode named by the second argument,
+        // the heuristic named by the third (manhattan, linear or a pattern database file)
+        // and the number of HDA_STAR threads or the SMA_STAR node budget given by the fourth
+        Mode mode = args.length > 1 ? Mode.valueOf(args[1]) : Mode.ASTAR;
+        Heuristic heuristic = args.length > 2 ? heuristic(args[2], initial.dimension()) : null;
+        Solver solver;
+        if (mode == Mode.SMA_STAR && args.length > 3)
+            solver = smaStar(initial, heuristic, Integer.parseInt(args[3]));
+        else if (args.length > 3)
+            solver = new Solver(initial, mode, heuristic, Integer.parseInt(args[3]));
+        else
+            solver = new Solver(initial, mode, heuristic);
 
         // print solution to standard output
-        if (!solver.isSolvable())
+        if (solver.isOverBudget())
+            StdOut.println("No solution fits in the node budget");
+        else if (!solver.isSolvable())
             StdOut.println("No solution possible");
         else {
             StdOut.println("Minimum number of moves = " + solver.moves());
@@ -0,0 +1,110 @@
+import java.util.Arrays;
+
+// Closed set of the packed search: the best number of moves found so far for each
+// state, in a linear-probing table of primitive longs and ints (no boxing). The
+// packed state 0 (every tile blank) cannot occur and marks an empty slot. A table
+// built to track parents also keeps the state each best path came from.
+class StateTable {
+    private static final long EMPTY = 0;
+
+    private long[] _keys;
+    private int[] _steps;
+    private long[] _parents; // null unless tracking parents
+    private int _size;
+
+    StateTable() {
+        this(false);
+    }
+
+    StateTable(boolean trackParents) {
+        _keys = new long[1 << 10];
+        _steps = new int[_keys.length];
+        _parents = trackParents ? new long[_keys.length] : null;
+        _size = 0;
+    }
+
+    private static int hash(long state) {
+        state = (state ^ (state >>> 33)) * 0xFF51AFD7ED558CCDL;
+        state = (state ^ (state >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return (int) (state ^ (state >>> 33));
+    }
+
+    // slot of state, or of the empty slot where it would go
+    private int slot(long state) {
+        int mask = _keys.length - 1;
+        int i = hash(state) & mask;
+        while (_keys[i] != EMPTY && _keys[i] != state) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    // records that state is reached in steps moves, unless it was already reached in
+    // as few; returns whether the table changed
+    boolean offer(long state, int steps) {
+        return offer(state, steps, EMPTY);
+    }
+
+    // as offer(state, steps), also recording parent as the state the path came from
+    boolean offer(long state, int steps, long parent) {
+        int i = slot(state);
+        if (_keys[i] == state) {
+            if (_steps[i] <= steps)
+                return false;
+            _steps[i] = steps;
+            if (_parents != null)
+                _parents[i] = parent;
+            return true;
+        }
+        _keys[i] = state;
+        _steps[i] = steps;
+        if (_parents != null)
+            _parents[i] = parent;
+        if (++_size > _keys.length >>> 1)
+            grow();
+        return true;
+    }
+
+    // best number of moves recorded for state, or -1 if it was never reached
+    int steps(long state) {
+        int i = slot(state);
+        return _keys[i] == state ? _steps[i] : -1;
+    }
+
+    // state the best recorded path to state came from, 0 for a start state
+    long parent(long state) {
+        int i = slot(state);
+        if (_keys[i] != state)
+            throw new IllegalArgumentException("The state was never reached");
+        return _parents[i];
+    }
+
+    // number of states
+    int size() {
+        return _size;
+    }
+
+    private void grow() {
+        long[] keys = _keys;
+        int[] steps = _steps;
+        long[] parents = _parents;
+        _keys = new long[2 * keys.length];
+        _steps = new int[_keys.length];
+        _parents = parents != null ? new long[_keys.length] : null;
+        for (int j = 0; j < keys.length; ++j) {
+            if (keys[j] == EMPTY)
+                continue;
+            int i = slot(keys[j]);
+            _keys[i] = keys[j];
+            _steps[i] = steps[j];
+            if (parents != null)
+                _parents[i] = parents[j];
+        }
+    }
+
+    // forgets every state
+    void clear() {
+        Arrays.fill(_keys, EMPTY);
+        _size = 0;
+    }
+}
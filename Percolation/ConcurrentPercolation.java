@@ -0,0 +1,343 @@
+/**
+ * MIT License
+ * 
+ * Copyright (c) 2021 Hongliang Fan
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import edu.princeton.cs.algs4.StdOut;
+import edu.princeton.cs.algs4.StdRandom;
+
+// Thread-safe Percolation without locks. Site status is an atomic bitset and the
+// union-find links roots with compare-and-set, halving paths with CAS as well.
+//
+// A root entry holds the top/bottom bits of its cluster. A root is only ever hung
+// under a root whose bits already contain its own (the bits are merged into the
+// surviving root first, and the one with the top bit survives), so a site becomes
+// full at exactly one CAS.
+//
+// An open sets the site's open bit before its unions, so a query that walked the
+// union-find mid-open could see the site open but not yet joined. Every open therefore
+// announces itself in m_openers, and isFull, numberOfOpenSites and percolates only read
+// the union-find in a window with no open in flight, retrying otherwise. Each open takes
+// effect at the CAS of its open bit: isOpen reads that bit directly, and no other query
+// overlaps an open, so all four queries are linearizable.
+//
+// m_openers is striped by thread, one cache line per stripe, so opens on different
+// threads write different lines; a query adds the stripes up before and after its read.
+// A query that misses PATIENCE windows holds new opens back through m_waiting until it
+// gets one, which takes no longer than the opens already running. Opens are lock-free
+// except while such a query waits.
+public class ConcurrentPercolation {
+
+    // Connection bits of a root, stored in its entry as -(bits + 1)
+    private static final int TOP = 1;
+    private static final int BOTTOM = 2;
+
+    // a stripe of m_openers holds the number of opens started in its high bits and the
+    // number in flight in its low bits
+    private static final long STARTED = 1L << 24;
+    private static final long IN_FLIGHT = STARTED - 1;
+    private static final int PAD = 8; // longs per stripe, one 64-byte cache line
+    private static final int PATIENCE = 64; // windows a query misses before holding opens back
+
+    private final int m_n; // size;
+    private final AtomicIntegerArray m_parent; // parent link, or -(bits + 1) when the site is a root
+    private final AtomicLongArray m_open; // one open bit per site
+    private final AtomicInteger m_totalCounts; // count number of total open cells
+    private final AtomicLongArray m_openers; // opens started and in flight per stripe, see STARTED
+    private final int m_stripeMask; // number of stripes - 1, a power of two less one
+    private final AtomicInteger m_waiting; // queries holding new opens back
+    private volatile boolean m_percolates; // set once a root is connected to both top and bottom
+
+    // creates n-by-n grid, with all sites initially blocked
+    public ConcurrentPercolation(int n) {
+        if (n <= 0)
+            throw new IllegalArgumentException("Size " + n + " must be greater than zero");
+        m_n = n;
+        int totalSize = m_n * m_n;
+        m_parent = new AtomicIntegerArray(totalSize);
+        // The bits of the first and last rows are set up front, so opening a site never
+        // has to write its entry, which another opener may already be linking
+        for (int loc = 0; loc < totalSize; ++loc) {
+            int bits = 0;
+            if (loc < m_n)
+                bits |= TOP;
+            if (loc >= totalSize - m_n)
+                bits |= BOTTOM;
+            m_parent.set(loc, -(bits + 1));
+        }
+        m_open = new AtomicLongArray((totalSize + 63) >>> 6);
+        m_totalCounts = new AtomicInteger();
+        // at least two stripes per processor, so few threads share one
+        int stripes = Integer.highestOneBit(2 * Runtime.getRuntime().availableProcessors() - 1) << 1;
+        m_openers = new AtomicLongArray(stripes * PAD);
+        m_stripeMask = stripes - 1;
+        m_waiting = new AtomicInteger();
+        m_percolates = false;
+    }
+
+    // calculate the location index of (row, col)
+    // returns (row-1)*m_n + (col-1);
+    private int calculateLoc(int row, int col) {
+        if (row < 1 || row > m_n || col < 1 || col > m_n) {
+            throw new IllegalArgumentException(
+                    "index indexed by " + row + " or " + col + " is not between 1 and " + m_n);
+        }
+        return (row - 1) * m_n + (col - 1);
+    }
+
+    private boolean openAt(int loc) {
+        return (m_open.get(loc >>> 6) & (1L << loc)) != 0;
+    }
+
+    private static int bits(int rootEntry) {
+        return -rootEntry - 1;
+    }
+
+    // fixed pseudo-random order of the sites (a bijective hash), used to break ties
+    // between roots with the same bits so that concurrent links cannot form a cycle
+    private static int priority(int loc) {
+        int h = loc * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    // root of loc, halving the path on the way up
+    private int find(int loc) {
+        while (true) {
+            int parent = m_parent.get(loc);
+            if (parent < 0)
+                return loc;
+            int grandParent = m_parent.get(parent);
+            if (grandParent < 0)
+                return parent;
+            m_parent.compareAndSet(loc, parent, grandParent);
+            loc = grandParent;
+        }
+    }
+
+    // joins the clusters of the open sites p and q
+    private void union(int p, int q) {
+        while (true) {
+            int rootP = find(p);
+            int rootQ = find(q);
+            if (rootP == rootQ)
+                return;
+            int entryP = m_parent.get(rootP);
+            int entryQ = m_parent.get(rootQ);
+            if (entryP >= 0 || entryQ >= 0)
+                continue;
+            int bitsP = bits(entryP);
+            int bitsQ = bits(entryQ);
+            // Pick rootQ as the survivor: the root with a superset of bits, else the one
+            // with the top bit, else the higher priority
+            boolean swap;
+            if (bitsP == bitsQ)
+                swap = priority(rootP) > priority(rootQ);
+            else if ((bitsP & bitsQ) == bitsQ)
+                swap = true;
+            else if ((bitsP & bitsQ) == bitsP)
+                swap = false;
+            else
+                swap = (bitsP & TOP) != 0;
+            if (swap) {
+                int tmp = rootP;
+                rootP = rootQ;
+                rootQ = tmp;
+                tmp = entryP;
+                entryP = entryQ;
+                entryQ = tmp;
+                tmp = bitsP;
+                bitsP = bitsQ;
+                bitsQ = tmp;
+            }
+            if ((bitsP | bitsQ) != bitsQ) {
+                // Merge the bits into the survivor first; this only adds the bottom bit
+                // to a full cluster, which no query can observe on its own
+                m_parent.compareAndSet(rootQ, entryQ, -((bitsP | bitsQ) + 1));
+                continue;
+            }
+            if (m_parent.compareAndSet(rootP, entryP, rootQ)) {
+                if (bitsQ == (TOP | BOTTOM))
+                    m_percolates = true;
+                return;
+            }
+        }
+    }
+
+    // index in m_openers of the calling thread's stripe
+    private int stripe() {
+        return ((int) Thread.currentThread().getId() & m_stripeMask) * PAD;
+    }
+
+    // waits for a moment with no open in flight, the attempt-th for this query; returns
+    // the sum of the stripes seen then. The PATIENCE-th attempt starts holding opens back
+    private long quiescent(int attempt) {
+        if (attempt == PATIENCE)
+            m_waiting.incrementAndGet();
+        while (true) {
+            long openers = 0;
+            boolean quiet = true;
+            for (int i = 0; i < m_openers.length() && quiet; i += PAD) {
+                long stripe = m_openers.get(i);
+                quiet = (stripe & IN_FLIGHT) == 0;
+                openers += stripe;
+            }
+            if (quiet)
+                return openers;
+            Thread.onSpinWait();
+        }
+    }
+
+    // has no open started since quiescent(attempt) returned openers? A stripe only goes
+    // back to a value it had when the opens in between stood aside without doing anything,
+    // so the sum is the same exactly then. Stops holding opens back once true
+    private boolean stillQuiescent(long openers, int attempt) {
+        long now = 0;
+        for (int i = 0; i < m_openers.length(); i += PAD) {
+            now += m_openers.get(i);
+        }
+        if (now != openers)
+            return false;
+        if (attempt >= PATIENCE)
+            m_waiting.decrementAndGet();
+        return true;
+    }
+
+    // opens the site (row, col) if it is not open already
+    public void open(int row, int col) {
+        int loc = calculateLoc(row, col);
+        // an open site stays open, so this open takes effect here
+        if (openAt(loc))
+            return;
+        int stripe = stripe();
+        while (true) {
+            m_openers.addAndGet(stripe, STARTED + 1);
+            if (m_waiting.get() == 0)
+                break;
+            // a query is waiting for a window: stand aside until it has one
+            m_openers.addAndGet(stripe, -(STARTED + 1));
+            while (m_waiting.get() != 0) {
+                Thread.onSpinWait();
+            }
+        }
+        try {
+            openSite(loc, row, col);
+        } finally {
+            m_openers.decrementAndGet(stripe);
+        }
+    }
+
+    private void openSite(int loc, int row, int col) {
+        int word = loc >>> 6;
+        long mask = 1L << loc;
+        while (true) {
+            long status = m_open.get(word);
+            if ((status & mask) != 0)
+                return;
+            if (m_open.compareAndSet(word, status, status | mask))
+                break;
+        }
+        m_totalCounts.incrementAndGet();
+        if (m_n == 1)
+            m_percolates = true;
+        // Union it with the open neighbors
+        if (row > 1 && openAt(loc - m_n))
+            union(loc - m_n, loc);
+        if (row < m_n && openAt(loc + m_n))
+            union(loc + m_n, loc);
+        if (col > 1 && openAt(loc - 1))
+            union(loc - 1, loc);
+        if (col < m_n && openAt(loc + 1))
+            union(loc + 1, loc);
+    }
+
+    // is the site (row, col) open?
+    public boolean isOpen(int row, int col) {
+        return openAt(calculateLoc(row, col));
+    }
+
+    // is the site (row, col) full?
+    public boolean isFull(int row, int col) {
+        int loc = calculateLoc(row, col);
+        for (int attempt = 0;; ++attempt) {
+            long openers = quiescent(attempt);
+            boolean full = openAt(loc) && (bits(m_parent.get(find(loc))) & TOP) != 0;
+            if (stillQuiescent(openers, attempt))
+                return full;
+        }
+    }
+
+    // returns the number of open sites
+    public int numberOfOpenSites() {
+        for (int attempt = 0;; ++attempt) {
+            long openers = quiescent(attempt);
+            int count = m_totalCounts.get();
+            if (stillQuiescent(openers, attempt))
+                return count;
+        }
+    }
+
+    // does the system percolate?
+    public boolean percolates() {
+        // once set it stays set, and the open that set it has already taken effect
+        if (m_percolates)
+            return true;
+        for (int attempt = 0;; ++attempt) {
+            long openers = quiescent(attempt);
+            boolean percolates = m_percolates;
+            if (stillQuiescent(openers, attempt))
+                return percolates;
+        }
+    }
+
+    // test client: opens every site of an n-by-n grid in random order from 1, 4, 16
+    // and 64 threads and prints the throughput
+    public static void main(String[] args) throws InterruptedException {
+        int n = Integer.parseInt(args[0]);
+        int[] order = StdRandom.permutation(n * n);
+        for (int threads : new int[] { 1, 4, 16, 64 }) {
+            ConcurrentPercolation percolation = new ConcurrentPercolation(n);
+            Thread[] workers = new Thread[threads];
+            for (int t = 0; t < threads; ++t) {
+                final int first = t;
+                workers[t] = new Thread(() -> {
+                    for (int i = first; i < order.length; i += threads) {
+                        percolation.open(order[i] / n + 1, order[i] % n + 1);
+                    }
+                });
+            }
+            long start = System.nanoTime();
+            for (Thread worker : workers) {
+                worker.start();
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            StdOut.printf("%2d threads: %.1f M opens/s, percolates = %b%n", threads, order.length / seconds / 1e6,
+                    percolation.percolates());
+        }
+    }
+}
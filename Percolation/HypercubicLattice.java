@@ -0,0 +1,84 @@
+/**
+ * MIT License
+ * 
+ * Copyright (c) 2021 Hongliang Fan
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+// The d-dimensional hypercubic lattice of side n: 2-D square, 3-D cubic and so on.
+// The first coordinate plays the role of the row, so its faces are top and bottom.
+public class HypercubicLattice implements Lattice {
+
+    private final int m_n; // side
+    private final int m_d; // dimension
+    private final int[] m_strides; // distance between neighbours along each axis
+    private final int m_sites; // n^d
+    private final int m_topStride; // stride of the first axis
+
+    public HypercubicLattice(int n, int d) {
+        if (n <= 0 || d <= 0)
+            throw new IllegalArgumentException("Side " + n + " and dimension " + d + " must be greater than zero");
+        long sites = 1;
+        for (int i = 0; i < d; ++i) {
+            sites *= n;
+            if (sites > Integer.MAX_VALUE)
+                throw new IllegalArgumentException(n + "^" + d + " sites do not fit in an int");
+        }
+        m_n = n;
+        m_d = d;
+        m_sites = (int) sites;
+        m_strides = new int[d];
+        int stride = 1;
+        for (int axis = d - 1; axis >= 0; --axis) {
+            m_strides[axis] = stride;
+            stride *= n;
+        }
+        m_topStride = m_strides[0];
+    }
+
+    public int sites() {
+        return m_sites;
+    }
+
+    public int maxDegree() {
+        return 2 * m_d;
+    }
+
+    public int neighbors(int site, int[] neighbors) {
+        int count = 0;
+        for (int axis = 0; axis < m_d; ++axis) {
+            int stride = m_strides[axis];
+            int coordinate = (site / stride) % m_n;
+            if (coordinate > 0)
+                neighbors[count++] = site - stride;
+            if (coordinate < m_n - 1)
+                neighbors[count++] = site + stride;
+        }
+        return count;
+    }
+
+    public boolean isTop(int site) {
+        return site < m_topStride;
+    }
+
+    public boolean isBottom(int site) {
+        return site >= m_sites - m_topStride;
+    }
+}
@@ -0,0 +1,195 @@
+/**
+ * MIT License
+ * 
+ * Copyright (c) 2021 Hongliang Fan
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.nio.file.Path;
+
+import edu.princeton.cs.algs4.StdOut;
+import edu.princeton.cs.algs4.StdRandom;
+
+// Percolation for grids too large for Percolation: site status is a long[] bitset,
+// the union-find lives off-heap and every site index is a long, so n is only bounded
+// by the bitset (n * n / 64 longs must fit in an array).
+public class LargePercolation implements AutoCloseable {
+
+    // Top/bottom connection bits kept in the low bits of a root entry
+    private static final long TOP = 1;
+    private static final long BOTTOM = 2;
+    private static final long FLAG_BITS = 2;
+    private static final long MAX_SITES = ((long) Integer.MAX_VALUE) << 6;
+
+    private final int m_n; // size;
+    private final long[] m_open; // one open bit per site
+    // Union-find entry of each site. A positive value is parent + 1; a root holds
+    // -(((size - 1) << FLAG_BITS) | flags), so a freshly zeroed array is all singleton roots.
+    private final OffHeapLongArray m_parent;
+    private long m_totalCounts; // count number of total open cells
+    private boolean m_percolates; // set once a root is connected to both top and bottom
+
+    // creates n-by-n grid backed by direct buffers, with all sites initially blocked
+    public LargePercolation(int n) {
+        this(n, null);
+    }
+
+    // creates n-by-n grid whose union-find is memory-mapped from file,
+    // or backed by direct buffers if file is null
+    public LargePercolation(int n, Path file) {
+        if (n <= 0)
+            throw new IllegalArgumentException("Size " + n + " must be greater than zero");
+        long totalSize = (long) n * n;
+        if (totalSize > MAX_SITES)
+            throw new IllegalArgumentException("Size " + n + " is too large");
+        m_n = n;
+        m_open = new long[(int) ((totalSize + 63) >>> 6)];
+        m_parent = file == null ? new OffHeapLongArray(totalSize) : new OffHeapLongArray(totalSize, file);
+        m_totalCounts = 0;
+        m_percolates = false;
+    }
+
+    // calculate the location index of (row, col)
+    // returns (row-1)*m_n + (col-1);
+    private long calculateLoc(int row, int col) {
+        if (!validRange(row) || !validRange(col)) {
+            throw new IllegalArgumentException(
+                    "index indexed by " + row + " or " + col + " is not between 1 and " + m_n);
+        }
+        return (long) (row - 1) * m_n + (col - 1);
+    }
+
+    // check if the input col or row is valid
+    private boolean validRange(int rc) {
+        return rc >= 1 && rc <= m_n;
+    }
+
+    private boolean openAt(long loc) {
+        return (m_open[(int) (loc >>> 6)] & (1L << loc)) != 0;
+    }
+
+    // root of loc, halving the path on the way up
+    private long find(long loc) {
+        long entry = m_parent.get(loc);
+        while (entry > 0) {
+            long parent = entry - 1;
+            long grandEntry = m_parent.get(parent);
+            if (grandEntry > 0) {
+                m_parent.set(loc, grandEntry);
+                loc = grandEntry - 1;
+                entry = m_parent.get(loc);
+            } else {
+                loc = parent;
+                entry = grandEntry;
+            }
+        }
+        return loc;
+    }
+
+    // weighted union of the clusters of the open sites p and q, merging their top/bottom bits
+    private void union(long p, long q) {
+        long rootP = find(p);
+        long rootQ = find(q);
+        if (rootP == rootQ)
+            return;
+        long payloadP = -m_parent.get(rootP);
+        long payloadQ = -m_parent.get(rootQ);
+        if (payloadP < payloadQ) {
+            long tmp = rootP;
+            rootP = rootQ;
+            rootQ = tmp;
+            tmp = payloadP;
+            payloadP = payloadQ;
+            payloadQ = tmp;
+        }
+        // (sizeP - 1) + (sizeQ - 1) + 1 is the new size - 1
+        long size = (payloadP >>> FLAG_BITS) + (payloadQ >>> FLAG_BITS) + 1;
+        long flags = (payloadP | payloadQ) & (TOP | BOTTOM);
+        m_parent.set(rootP, -((size << FLAG_BITS) | flags));
+        m_parent.set(rootQ, rootP + 1);
+    }
+
+    // opens the site (row, col) if it is not open already
+    public void open(int row, int col) {
+        long loc = calculateLoc(row, col);
+        if (openAt(loc)) {
+            return;
+        }
+        ++m_totalCounts;
+        m_open[(int) (loc >>> 6)] |= 1L << loc;
+        long flags = 0;
+        if (row == 1)
+            flags |= TOP;
+        if (row == m_n)
+            flags |= BOTTOM;
+        m_parent.set(loc, -flags);
+        // Union it with the open neighbors
+        if (row > 1 && openAt(loc - m_n))
+            union(loc - m_n, loc);
+        if (row < m_n && openAt(loc + m_n))
+            union(loc + m_n, loc);
+        if (col > 1 && openAt(loc - 1))
+            union(loc - 1, loc);
+        if (col < m_n && openAt(loc + 1))
+            union(loc + 1, loc);
+        // The system percolates as soon as the new cluster touches both rows
+        if ((-m_parent.get(find(loc)) & (TOP | BOTTOM)) == (TOP | BOTTOM))
+            m_percolates = true;
+    }
+
+    // is the site (row, col) open?
+    public boolean isOpen(int row, int col) {
+        return openAt(calculateLoc(row, col));
+    }
+
+    // is the site (row, col) full?
+    public boolean isFull(int row, int col) {
+        long loc = calculateLoc(row, col);
+        if (!openAt(loc))
+            return false;
+        return (-m_parent.get(find(loc)) & TOP) != 0;
+    }
+
+    // returns the number of open sites
+    public long numberOfOpenSites() {
+        return m_totalCounts;
+    }
+
+    // does the system percolate?
+    public boolean percolates() {
+        return m_percolates;
+    }
+
+    // releases the off-heap union-find
+    public void close() {
+        m_parent.close();
+    }
+
+    // test client: percolates an n-by-n grid, optionally backed by a file
+    public static void main(String[] args) {
+        int n = Integer.parseInt(args[0]);
+        try (LargePercolation percolation = new LargePercolation(n, args.length > 1 ? Path.of(args[1]) : null)) {
+            while (!percolation.percolates()) {
+                percolation.open(StdRandom.uniform(1, n + 1), StdRandom.uniform(1, n + 1));
+            }
+            StdOut.println("open sites = " + percolation.numberOfOpenSites() + " of " + (long) n * n);
+        }
+    }
+}
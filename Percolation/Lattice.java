@@ -0,0 +1,44 @@
+/**
+ * MIT License
+ * 
+ * Copyright (c) 2021 Hongliang Fan
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+// Geometry of a lattice for LatticePercolation. Sites are numbered 0..sites()-1 and
+// neighbours are reported as flat indices, so no coordinates are ever boxed.
+public interface Lattice {
+
+    // number of sites
+    int sites();
+
+    // largest number of neighbours of any site
+    int maxDegree();
+
+    // writes the neighbours of site into neighbors (of length >= maxDegree()),
+    // returns how many were written
+    int neighbors(int site, int[] neighbors);
+
+    // is site on the top face, connected to the source?
+    boolean isTop(int site);
+
+    // is site on the bottom face, whose connection to the top means percolation?
+    boolean isBottom(int site);
+}
@@ -0,0 +1,102 @@
+/**
+ * MIT License
+ * 
+ * Copyright (c) 2021 Hongliang Fan
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+// Site percolation on any Lattice. Same engine as Percolation, a SiteUnionFind whose
+// roots carry the top/bottom bits, but the neighbours come from the lattice and the
+// sites are addressed by their flat index.
+public class LatticePercolation {
+
+    private final Lattice m_lattice; // geometry
+    private final SiteUnionFind m_sites; // open sites and their clusters
+    private final int[] m_neighbors; // scratch space for the neighbours of the site being opened
+    private int m_totalCounts; // count number of total open sites
+    private boolean m_percolates; // set once a root is connected to both top and bottom
+
+    // creates the lattice with all sites initially blocked
+    public LatticePercolation(Lattice lattice) {
+        if (lattice == null)
+            throw new IllegalArgumentException("Lattice must not be null");
+        m_lattice = lattice;
+        m_sites = new SiteUnionFind(lattice.sites());
+        m_neighbors = new int[lattice.maxDegree()];
+        m_totalCounts = 0;
+        m_percolates = false;
+    }
+
+    private void validate(int site) {
+        if (site < 0 || site >= m_sites.sites())
+            throw new IllegalArgumentException("site " + site + " is not between 0 and " + (m_sites.sites() - 1));
+    }
+
+    // opens site if it is not open already
+    public void open(int site) {
+        validate(site);
+        openSite(site);
+    }
+
+    // opens the valid site, the unchecked path used by the trial driver
+    void openSite(int site) {
+        if (m_sites.isOpen(site)) {
+            return;
+        }
+        ++m_totalCounts;
+        byte edges = 0;
+        if (m_lattice.isTop(site))
+            edges |= SiteUnionFind.TOP;
+        if (m_lattice.isBottom(site))
+            edges |= SiteUnionFind.BOTTOM;
+        m_sites.open(site, edges);
+        // Union it with the open neighbors
+        int degree = m_lattice.neighbors(site, m_neighbors);
+        for (int i = 0; i < degree; ++i) {
+            if (m_sites.isOpen(m_neighbors[i]))
+                m_sites.union(m_neighbors[i], site);
+        }
+        // The system percolates as soon as the new cluster touches both faces
+        if (m_sites.spans(site))
+            m_percolates = true;
+    }
+
+    // is site open?
+    public boolean isOpen(int site) {
+        validate(site);
+        return m_sites.isOpen(site);
+    }
+
+    // is site full?
+    public boolean isFull(int site) {
+        validate(site);
+        return m_sites.isFull(site);
+    }
+
+    // returns the number of open sites
+    public int numberOfOpenSites() {
+        return m_totalCounts;
+    }
+
+    // does the system percolate?
+    public boolean percolates() {
+        return m_percolates;
+    }
+}
@@ -0,0 +1,124 @@
+/**
+ * MIT License
+ * 
+ * Copyright (c) 2021 Hongliang Fan
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+import edu.princeton.cs.algs4.StdOut;
+import edu.princeton.cs.algs4.StdRandom;
+
+// PercolationStats for any Lattice: parallel Newman-Ziff sweeps run by the same
+// TrialDriver, so results do not depend on the number of threads.
+public class LatticePercolationStats {
+    private final OnlineStats m_stats; // running mean and variance of the trial results
+
+    // perform independent trials on lattice
+    public LatticePercolationStats(Lattice lattice, int trials) {
+        this(lattice, trials, StdRandom.uniform(Long.MAX_VALUE), Runtime.getRuntime().availableProcessors());
+    }
+
+    // perform independent trials on lattice with threads workers
+    public LatticePercolationStats(Lattice lattice, int trials, long seed, int threads) {
+        if (lattice == null)
+            throw new IllegalArgumentException("Lattice must not be null");
+        if (trials <= 0)
+            throw new IllegalArgumentException("Trials " + trials + " must be greater than zero");
+        if (threads <= 0)
+            throw new IllegalArgumentException("Threads " + threads + " must be greater than zero");
+        m_stats = new OnlineStats();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            TrialDriver.run(pool, seed, 0, trials, random -> runTrial(lattice, random),
+                    count -> m_stats.add(1.0 * count / lattice.sites()), null, null);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    // open the sites of a random permutation until the lattice percolates,
+    // returns the number of open sites
+    private static int runTrial(Lattice lattice, SplittableRandom random) {
+        LatticePercolation percolate = new LatticePercolation(lattice);
+        int totalSize = lattice.sites();
+        int[] order = new int[totalSize];
+        for (int i = 0; i < totalSize; ++i) {
+            order[i] = i;
+        }
+        for (int i = 0; !percolate.percolates(); ++i) {
+            int j = i + random.nextInt(totalSize - i);
+            int site = order[j];
+            order[j] = order[i];
+            order[i] = site;
+            percolate.openSite(site);
+        }
+        return percolate.numberOfOpenSites();
+    }
+
+    // number of trials run
+    public int trials() {
+        return (int) m_stats.count();
+    }
+
+    // sample mean of percolation threshold
+    public double mean() {
+        return m_stats.mean();
+    }
+
+    // sample standard deviation of percolation threshold
+    public double stddev() {
+        return m_stats.stddev();
+    }
+
+    // low endpoint of 95% confidence interval
+    public double confidenceLo() {
+        return mean() - m_stats.halfWidth();
+    }
+
+    // high endpoint of 95% confidence interval
+    public double confidenceHi() {
+        return mean() + m_stats.halfWidth();
+    }
+
+    // test client: cubic n d trials | triangular n trials | honeycomb n trials
+    public static void main(String[] args) {
+        Lattice lattice;
+        int trials;
+        if (args.length == 4 && args[0].equals("cubic")) {
+            lattice = new HypercubicLattice(Integer.parseInt(args[1]), Integer.parseInt(args[2]));
+            trials = Integer.parseInt(args[3]);
+        } else if (args.length == 3 && args[0].equals("triangular")) {
+            lattice = new TriangularLattice(Integer.parseInt(args[1]));
+            trials = Integer.parseInt(args[2]);
+        } else if (args.length == 3 && args[0].equals("honeycomb")) {
+            lattice = new HoneycombLattice(Integer.parseInt(args[1]));
+            trials = Integer.parseInt(args[2]);
+        } else {
+            throw new IllegalArgumentException("Input must be cubic n d trials, triangular n trials or honeycomb n trials");
+        }
+        LatticePercolationStats testObj = new LatticePercolationStats(lattice, trials);
+        StdOut.println("mean                    = " + testObj.mean());
+        StdOut.println("stddev                  = " + testObj.stddev());
+        StdOut.println("95% confidence interval = [" + testObj.confidenceLo() + ", " + testObj.confidenceHi() + "]");
+    }
+}
@@ -0,0 +1,195 @@
+/**
+ * MIT License
+ * 
+ * Copyright (c) 2021 Hongliang Fan
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// A zero-initialised array of longs that lives outside the Java heap, indexed by long.
+// The storage is split into segments of 2^27 longs (1 GiB) because a single buffer
+// cannot address more than Integer.MAX_VALUE bytes. Direct buffers count against
+// -XX:MaxDirectMemorySize (by default the maximum heap size), 8 bytes per long.
+public class OffHeapLongArray implements AutoCloseable {
+
+    private static final int SEGMENT_SHIFT = 27; // longs per segment = 2^27
+    private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+
+    // sun.misc.Unsafe.invokeCleaner, looked up reflectively so the build needs no
+    // internal API; null if this JDK does not have it
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            Class<?> type = Class.forName("sun.misc.Unsafe");
+            Field field = type.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafe = field.get(null);
+            invokeCleaner = type.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            unsafe = null;
+            invokeCleaner = null;
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    private final long m_length; // number of longs
+    private final ByteBuffer[] m_buffers; // direct or mapped buffers, null once closed
+    private final LongBuffer[] m_segments; // views on the buffers
+    private final FileChannel m_channel; // backing file channel, null for direct buffers
+
+    // allocates length longs in direct buffers
+    public OffHeapLongArray(long length) {
+        m_length = checkLength(length);
+        m_buffers = new ByteBuffer[segmentCount(length)];
+        m_segments = new LongBuffer[m_buffers.length];
+        m_channel = null;
+        boolean allocated = false;
+        try {
+            for (int i = 0; i < m_segments.length; ++i) {
+                m_buffers[i] = ByteBuffer.allocateDirect(segmentBytes(i)).order(ByteOrder.nativeOrder());
+                m_segments[i] = m_buffers[i].asLongBuffer();
+            }
+            allocated = true;
+        } finally {
+            // the segments allocated before a failure are not reachable by the caller
+            if (!allocated)
+                freeSegments();
+        }
+    }
+
+    // maps length longs from file, which is created (or truncated) first
+    // so that the pages start out zeroed
+    public OffHeapLongArray(long length, Path file) {
+        m_length = checkLength(length);
+        m_buffers = new ByteBuffer[segmentCount(length)];
+        m_segments = new LongBuffer[m_buffers.length];
+        FileChannel channel = null;
+        boolean mapped = false;
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            for (int i = 0; i < m_segments.length; ++i) {
+                long offset = ((long) i << SEGMENT_SHIFT) * Long.BYTES;
+                m_buffers[i] = channel.map(FileChannel.MapMode.READ_WRITE, offset, segmentBytes(i))
+                        .order(ByteOrder.nativeOrder());
+                m_segments[i] = m_buffers[i].asLongBuffer();
+            }
+            mapped = true;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot map " + file, e);
+        } finally {
+            // unmap what was mapped before a failure and release the file
+            if (!mapped) {
+                freeSegments();
+                closeQuietly(channel);
+            }
+        }
+        m_channel = channel;
+    }
+
+    private static long checkLength(long length) {
+        if (length <= 0)
+            throw new IllegalArgumentException("Length " + length + " must be greater than zero");
+        return length;
+    }
+
+    private static int segmentCount(long length) {
+        return (int) ((length + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+    }
+
+    // size in bytes of the i-th segment, the last one may be partial
+    private int segmentBytes(int i) {
+        long first = (long) i << SEGMENT_SHIFT;
+        return (int) (Math.min(m_length - first, SEGMENT_MASK + 1) * Long.BYTES);
+    }
+
+    // number of longs
+    public long length() {
+        return m_length;
+    }
+
+    public long get(long index) {
+        return m_segments[(int) (index >>> SEGMENT_SHIFT)].get((int) (index & SEGMENT_MASK));
+    }
+
+    public void set(long index, long value) {
+        m_segments[(int) (index >>> SEGMENT_SHIFT)].put((int) (index & SEGMENT_MASK), value);
+    }
+
+    // frees the direct buffers (or unmaps the file) and releases the backing file. The
+    // array must not be used afterwards
+    public void close() {
+        freeSegments();
+        if (m_channel == null)
+            return;
+        try {
+            m_channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void freeSegments() {
+        for (int i = 0; i < m_buffers.length; ++i) {
+            if (m_buffers[i] != null)
+                free(m_buffers[i]);
+            m_buffers[i] = null;
+            m_segments[i] = null;
+        }
+    }
+
+    // closes channel, if not null, on the way out of a failure that is already being
+    // reported
+    private static void closeQuietly(FileChannel channel) {
+        if (channel == null)
+            return;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // the failure being thrown says more
+        }
+    }
+
+    // releases the memory of a direct or mapped buffer now rather than when it is
+    // collected; without invokeCleaner it is left to the garbage collector
+    private static void free(ByteBuffer buffer) {
+        if (INVOKE_CLEANER == null)
+            return;
+        try {
+            INVOKE_CLEANER.invoke(UNSAFE, buffer);
+        } catch (ReflectiveOperationException e) {
+            // left to the garbage collector
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/**
+ * MIT License
+ * 
+ * Copyright (c) 2021 Hongliang Fan
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+// Mean and variance of a stream of values in O(1) memory (Welford's algorithm).
+// Two accumulators can be merged (Chan et al.), e.g. to combine separate runs.
+public class OnlineStats {
+    private long m_count; // number of values
+    private double m_mean; // running mean
+    private double m_m2; // sum of squared differences from the mean
+
+    // adds one value
+    public void add(double x) {
+        ++m_count;
+        double delta = x - m_mean;
+        m_mean += delta / m_count;
+        m_m2 += delta * (x - m_mean);
+    }
+
+    // adds all the values seen by that
+    public void merge(OnlineStats that) {
+        if (that.m_count == 0)
+            return;
+        long count = m_count + that.m_count;
+        double delta = that.m_mean - m_mean;
+        m_mean += delta * that.m_count / count;
+        m_m2 += that.m_m2 + delta * delta * m_count / count * that.m_count;
+        m_count = count;
+    }
+
+    // number of values
+    public long count() {
+        return m_count;
+    }
+
+    // sample mean, NaN if empty
+    public double mean() {
+        return m_count == 0 ? Double.NaN : m_mean;
+    }
+
+    // sample standard deviation, NaN with fewer than two values
+    public double stddev() {
+        return m_count < 2 ? Double.NaN : Math.sqrt(m_m2 / (m_count - 1));
+    }
+
+    // half-width of the 95% confidence interval of the mean, NaN with fewer than two values
+    public double halfWidth() {
+        return 1.96 * stddev() / Math.sqrt(m_count);
+    }
+}
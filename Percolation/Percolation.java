@@ -22,47 +22,45 @@
  * SOFTWARE.
  */
 
-import edu.princeton.cs.algs4.WeightedQuickUnionUF;
-
 public class Percolation {
 
     private final int m_n; // size;
-    private final boolean[] m_cellStatus; // cell status
+    private final SiteUnionFind m_sites; // open sites and their clusters
     private int m_totalCounts; // count number of total open cells
-    private final WeightedQuickUnionUF m_percolates; // the union for determination of percolation
-    private final WeightedQuickUnionUF m_full; // the union to determine isFull?
-    private final int m_topLoc; // Location of the virtual top node
-    private final int m_bottomLoc; // Location of the virtual bottom node
+    private boolean m_percolates; // set once a root is connected to both top and bottom
+    private int m_clusters; // number of open clusters
+    private int m_largest; // size of the largest open cluster
+    private final int[] m_histogram; // number of clusters of each size, null unless requested
 
     // creates n-by-n grid, with all sites initially blocked
     public Percolation(int n) {
+        this(n, false);
+    }
+
+    // creates n-by-n grid, with all sites initially blocked, that also keeps
+    // the number of clusters of every size if trackHistogram is set
+    public Percolation(int n, boolean trackHistogram) {
         if (n <= 0)
             throw new IllegalArgumentException("Size " + n + " must be greater than zero");
         m_n = n;
-        // totalSize = real size of blocks + 2 virtual nodes
-        int totalSize = m_n * m_n + 2;
-        m_cellStatus = new boolean[totalSize];
+        // Each loc index is calculated by (row-1)*m_n + (col-1);
+        int totalSize = m_n * m_n;
+        m_sites = new SiteUnionFind(totalSize);
         m_totalCounts = 0;
-        // Index 0 is refered to top virtual node and index totalSize-1 is refered to
-        // down virtual node
-        // Each loc index is calculated by (row-1)*m_n + col;
-        m_percolates = new WeightedQuickUnionUF(totalSize);
-        m_full = new WeightedQuickUnionUF(totalSize - 1); // Full cannot be achieved by a single path from the virtual bottom node
-        m_topLoc = 0;
-        m_bottomLoc = totalSize - 1;
-        // Preset the virtual top and bottom node to be open
-        m_cellStatus[m_topLoc] = true;
-        m_cellStatus[m_bottomLoc] = true;
+        m_percolates = false;
+        m_clusters = 0;
+        m_largest = 0;
+        m_histogram = trackHistogram ? new int[totalSize + 1] : null;
     }
 
     // calculate the location index of (row, col)
-    // returns (row-1)*m_n + col;
+    // returns (row-1)*m_n + (col-1);
     private int calculateLoc(int row, int col) {
         if (!validRange(row) || !validRange(col)) {
             throw new IllegalArgumentException(
                     "index indexed by " + row + " or " + col + " is not between 1 and " + m_n);
         }
-        return (row - 1) * m_n + col;
+        return (row - 1) * m_n + (col - 1);
     }
 
     // check if the input col or row is valid
@@ -70,54 +68,98 @@ public class Percolation {
         return rc >= 1 && rc <= m_n;
     }
 
+    // union of the clusters of the open sites p and q, keeping the cluster statistics
+    private void union(int p, int q) {
+        if (PercolationMetrics.ENABLED)
+            PercolationMetrics.recordUnion();
+        int rootP = m_sites.find(p);
+        int rootQ = m_sites.find(q);
+        if (rootP == rootQ)
+            return;
+        int sizeP = m_sites.size(rootP);
+        int sizeQ = m_sites.size(rootQ);
+        m_sites.link(rootP, rootQ);
+        --m_clusters;
+        m_largest = Math.max(m_largest, sizeP + sizeQ);
+        if (m_histogram != null) {
+            --m_histogram[sizeP];
+            --m_histogram[sizeQ];
+            ++m_histogram[sizeP + sizeQ];
+        }
+    }
+
     // opens the site (row, col) if it is not open already
     public void open(int row, int col) {
-        if (isOpen(row, col)) {
-            return;
+        openSite(calculateLoc(row, col));
+    }
+
+    // opens the sites (rows[i], cols[i]) in order. All coordinates are validated
+    // before the first site is opened
+    public void openAll(int[] rows, int[] cols) {
+        if (rows == null || cols == null || rows.length != cols.length)
+            throw new IllegalArgumentException("rows and cols must be non-null and of the same length");
+        for (int i = 0; i < rows.length; ++i) {
+            calculateLoc(rows[i], cols[i]);
         }
-        ++m_totalCounts;
-        int loc = calculateLoc(row, col);
-        m_cellStatus[loc] = true;
-        // Union it with the neighbors
-        int[] directions = { -1, 1 };
-        for (int rowDir : directions) {
-            int newRow = row + rowDir;
-            if (validRange(newRow) && isOpen(newRow, col)) {
-                m_percolates.union(calculateLoc(newRow, col), loc);
-                m_full.union(calculateLoc(newRow, col), loc);
-            }
+        for (int i = 0; i < rows.length; ++i) {
+            openSite((rows[i] - 1) * m_n + (cols[i] - 1));
         }
-        for (int colDir : directions) {
-            int newCol = col + colDir;
-            if (validRange(newCol) && isOpen(row, newCol)) {
-                m_percolates.union(calculateLoc(row, newCol), loc);
-                m_full.union(calculateLoc(row, newCol), loc);
-            }
+    }
+
+    // opens the sites given by their linear index (row-1)*n + (col-1), in order.
+    // All indices are validated before the first site is opened
+    public void openLinear(int[] locs) {
+        if (locs == null)
+            throw new IllegalArgumentException("locs must be non-null");
+        for (int loc : locs) {
+            if (loc < 0 || loc >= m_sites.sites())
+                throw new IllegalArgumentException("linear index " + loc + " is not between 0 and " + (m_sites.sites() - 1));
         }
-        // If it is the top row, connect it to the virtual top node
-        if (row == 1) {
-            m_percolates.union(m_topLoc, loc);
-            m_full.union(m_topLoc, loc);
+        for (int loc : locs) {
+            openSite(loc);
         }
-        // If it is the bottom row and it is full, connect it to the virtual bottom node
-        if (row == m_n) {
-            m_percolates.union(m_bottomLoc, loc);
-            // m_full will not union bottom loc with loc to avoid a single path from the bottom loc
+    }
+
+    // opens the site at the valid linear index loc, the unchecked path shared by every open
+    void openSite(int loc) {
+        if (m_sites.isOpen(loc)) {
+            return;
         }
+        ++m_totalCounts;
+        ++m_clusters;
+        m_largest = Math.max(m_largest, 1);
+        if (m_histogram != null)
+            ++m_histogram[1];
+        int col = loc % m_n;
+        int lastRow = m_sites.sites() - m_n;
+        byte edges = 0;
+        if (loc < m_n)
+            edges |= SiteUnionFind.TOP;
+        if (loc >= lastRow)
+            edges |= SiteUnionFind.BOTTOM;
+        m_sites.open(loc, edges);
+        // Union it with the open neighbors
+        if (loc >= m_n && m_sites.isOpen(loc - m_n))
+            union(loc - m_n, loc);
+        if (loc < lastRow && m_sites.isOpen(loc + m_n))
+            union(loc + m_n, loc);
+        if (col > 0 && m_sites.isOpen(loc - 1))
+            union(loc - 1, loc);
+        if (col < m_n - 1 && m_sites.isOpen(loc + 1))
+            union(loc + 1, loc);
+        // The system percolates as soon as the new cluster touches both rows
+        if (m_sites.spans(loc))
+            m_percolates = true;
     }
 
     // is the site (row, col) open?
     public boolean isOpen(int row, int col) {
-        return m_cellStatus[calculateLoc(row, col)];
+        return m_sites.isOpen(calculateLoc(row, col));
     }
 
     // is the site (row, col) full?
     public boolean isFull(int row, int col) {
-        int loc = calculateLoc(row, col);
-        // Because there is no such thing as virtual bottom loc in m_full
-        // if m_full and virtual top node has shared parent, then it is full
-        return m_full.find(m_topLoc) == m_full.find(loc);
-
+        return m_sites.isFull(calculateLoc(row, col));
     }
 
     // returns the number of open sites
@@ -127,7 +169,26 @@ public class Percolation {
 
     // does the system percolate?
     public boolean percolates() {
-        return m_percolates.find(m_topLoc) == m_percolates.find(m_bottomLoc);
+        return m_percolates;
+    }
+
+    // returns the number of clusters of open sites
+    public int numberOfClusters() {
+        return m_clusters;
+    }
+
+    // returns the number of sites in the largest cluster, 0 if no site is open
+    public int largestClusterSize() {
+        return m_largest;
+    }
+
+    // returns the number of clusters made of exactly size open sites
+    public int clusterSizeCount(int size) {
+        if (m_histogram == null)
+            throw new IllegalStateException("The grid was created without a cluster size histogram");
+        if (size < 1 || size >= m_histogram.length)
+            throw new IllegalArgumentException("size " + size + " is not between 1 and " + (m_histogram.length - 1));
+        return m_histogram[size];
     }
 
     // test client (optional)
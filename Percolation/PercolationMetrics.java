@@ -0,0 +1,137 @@
+/**
+ * MIT License
+ * 
+ * Copyright (c) 2021 Hongliang Fan
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+// Opt-in counters for the hot paths of Percolation and PercolationStats. They are on
+// only when the JVM is started with -Dpercolation.metrics=true; ENABLED is a static
+// final, so every "if (PercolationMetrics.ENABLED)" guard is compiled away otherwise.
+// When on, the counters are also exported over JMX as "Percolation:type=Metrics".
+public class PercolationMetrics implements PercolationMetricsMBean {
+
+    public static final boolean ENABLED = Boolean.getBoolean("percolation.metrics");
+
+    private static final LongAdder s_findCalls = new LongAdder();
+    private static final LongAdder s_findSteps = new LongAdder();
+    private static final LongAccumulator s_maxPathLength = new LongAccumulator(Math::max, 0);
+    private static final LongAdder s_unionCalls = new LongAdder();
+    private static final LongAdder s_wastedDraws = new LongAdder();
+    private static final AtomicLongArray s_trialTimes = new AtomicLongArray(Long.SIZE);
+
+    static {
+        if (ENABLED) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(new PercolationMetrics(),
+                        new ObjectName("Percolation:type=Metrics"));
+            } catch (JMException e) {
+                throw new IllegalStateException("Cannot register the percolation metrics MBean", e);
+            }
+        }
+    }
+
+    private PercolationMetrics() {
+    }
+
+    // a find that walked steps parent links
+    static void recordFind(int steps) {
+        s_findCalls.increment();
+        s_findSteps.add(steps);
+        s_maxPathLength.accumulate(steps);
+    }
+
+    // a union of two open sites
+    static void recordUnion() {
+        s_unionCalls.increment();
+    }
+
+    // a random draw that hit a site that was already open
+    static void recordWastedDraw() {
+        s_wastedDraws.increment();
+    }
+
+    // a trial that took nanos nanoseconds
+    static void recordTrial(long nanos) {
+        s_trialTimes.incrementAndGet(63 - Long.numberOfLeadingZeros(Math.max(nanos, 1)));
+    }
+
+    // current values of all counters
+    public static PercolationMetricsSnapshot snapshot() {
+        long[] trialTimes = new long[s_trialTimes.length()];
+        for (int i = 0; i < trialTimes.length; ++i) {
+            trialTimes[i] = s_trialTimes.get(i);
+        }
+        return new PercolationMetricsSnapshot(s_findCalls.sum(), s_findSteps.sum(), s_maxPathLength.get(),
+                s_unionCalls.sum(), s_wastedDraws.sum(), trialTimes);
+    }
+
+    // sets all counters back to zero
+    public static void resetAll() {
+        s_findCalls.reset();
+        s_findSteps.reset();
+        s_maxPathLength.reset();
+        s_unionCalls.reset();
+        s_wastedDraws.reset();
+        for (int i = 0; i < s_trialTimes.length(); ++i) {
+            s_trialTimes.set(i, 0);
+        }
+    }
+
+    public long getFindCalls() {
+        return s_findCalls.sum();
+    }
+
+    public long getUnionCalls() {
+        return s_unionCalls.sum();
+    }
+
+    public double getAveragePathLength() {
+        return snapshot().averagePathLength();
+    }
+
+    public long getMaxPathLength() {
+        return s_maxPathLength.get();
+    }
+
+    public long getWastedDraws() {
+        return s_wastedDraws.sum();
+    }
+
+    public long getTrials() {
+        return snapshot().trials();
+    }
+
+    public long[] getTrialTimeHistogram() {
+        return snapshot().trialTimeHistogram();
+    }
+
+    public void reset() {
+        resetAll();
+    }
+}
@@ -0,0 +1,85 @@
+/**
+ * MIT License
+ * 
+ * Copyright (c) 2021 Hongliang Fan
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.util.Arrays;
+
+// Immutable copy of the PercolationMetrics counters at one point in time
+public class PercolationMetricsSnapshot {
+    private final long m_findCalls; // calls to find
+    private final long m_findSteps; // parent links walked by all finds
+    private final long m_maxPathLength; // longest path walked by one find
+    private final long m_unionCalls; // calls to union
+    private final long m_wastedDraws; // random draws that hit an open site
+    private final long[] m_trialTimeHistogram; // trials by power-of-two wall time in ns
+
+    PercolationMetricsSnapshot(long findCalls, long findSteps, long maxPathLength, long unionCalls,
+            long wastedDraws, long[] trialTimeHistogram) {
+        m_findCalls = findCalls;
+        m_findSteps = findSteps;
+        m_maxPathLength = maxPathLength;
+        m_unionCalls = unionCalls;
+        m_wastedDraws = wastedDraws;
+        m_trialTimeHistogram = trialTimeHistogram.clone();
+    }
+
+    public long findCalls() {
+        return m_findCalls;
+    }
+
+    // mean number of parent links walked by a find, 0 before the first find
+    public double averagePathLength() {
+        return m_findCalls == 0 ? 0.0 : 1.0 * m_findSteps / m_findCalls;
+    }
+
+    public long maxPathLength() {
+        return m_maxPathLength;
+    }
+
+    public long unionCalls() {
+        return m_unionCalls;
+    }
+
+    public long wastedDraws() {
+        return m_wastedDraws;
+    }
+
+    public long trials() {
+        long trials = 0;
+        for (long count : m_trialTimeHistogram) {
+            trials += count;
+        }
+        return trials;
+    }
+
+    // trials whose wall time t satisfies 2^i <= t < 2^(i+1) nanoseconds, for each i
+    public long[] trialTimeHistogram() {
+        return m_trialTimeHistogram.clone();
+    }
+
+    public String toString() {
+        return "finds = " + m_findCalls + ", average path = " + averagePathLength() + ", max path = "
+                + m_maxPathLength + ", unions = " + m_unionCalls + ", wasted draws = " + m_wastedDraws
+                + ", trial time histogram (log2 ns) = " + Arrays.toString(m_trialTimeHistogram);
+    }
+}
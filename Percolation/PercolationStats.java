@@ -22,66 +22,281 @@
  * SOFTWARE.
  */
 
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
 import edu.princeton.cs.algs4.StdOut;
 import edu.princeton.cs.algs4.StdRandom;
-import edu.princeton.cs.algs4.StdStats;
 
 public class PercolationStats {
-    private final double[] m_trialResults; // Stores the all the trial results;
-    private final double m_sqrtT; // Squre root of total trial times T
+    private final OnlineStats m_stats; // running mean and variance of the trial results
+    private final int m_n; // grid size
+    private final boolean m_sweep; // trials open the sites of a shuffled permutation
+    private final long[] m_thresholds; // sweep runs only: number of trials percolating at each open count
 
     // perform independent trials on an n-by-n grid
     public PercolationStats(int n, int trials) {
-        if (n <= 0 || trials <= 0) {
-            throw new IllegalArgumentException(
-                    "Both grid size " + n + " and trials " + trials + " must be greater than zero");
-        }
-        m_trialResults = new double[trials];
-        m_sqrtT = Math.sqrt(trials);
-        double realSize = n * n;
-        for (int i = 0; i < trials; ++i) {
-            Percolation percolate = new Percolation(n);
-            while (!percolate.percolates()) {
-                int row = StdRandom.uniform(1, n + 1);
-                int col = StdRandom.uniform(1, n + 1);
-                percolate.open(row, col);
+        this(n, trials, StdRandom.uniform(Long.MAX_VALUE), Runtime.getRuntime().availableProcessors());
+    }
+
+    // perform independent trials on an n-by-n grid with threads workers.
+    // Trial i draws from its own stream derived from (seed, i), so the results are
+    // bit-for-bit the same whatever the number of threads
+    public PercolationStats(int n, int trials, long seed, int threads) {
+        this(n, trials, seed, threads, false);
+    }
+
+    // perform independent trials as above. With sweep set, each trial opens the sites
+    // in the order of a random permutation (Newman-Ziff), so every step opens a new
+    // site and the open count at which the grid percolates is exact
+    public PercolationStats(int n, int trials, long seed, int threads, boolean sweep) {
+        this(n, trials, 0.0, seed, threads, sweep);
+    }
+
+    // perform trials as above until the 95% confidence interval is narrower than
+    // targetWidth (confidenceHi() - confidenceLo()), or maxTrials trials have run.
+    // The interval is checked every TrialDriver.BATCH trials, so the stopping point does
+    // not depend on the number of threads either
+    public PercolationStats(int n, int maxTrials, double targetWidth, long seed, int threads, boolean sweep) {
+        this(n, maxTrials, targetWidth, seed, threads, sweep, null);
+    }
+
+    // perform trials as above, appending each result to the binary log logFile and
+    // syncing it after every chunk of trials. If logFile already holds trials of the same
+    // run (the same arguments, but for threads), they are replayed and the run resumes
+    // after them with the same results it would have had uninterrupted
+    public PercolationStats(int n, int maxTrials, double targetWidth, long seed, int threads, boolean sweep,
+            Path logFile) {
+        this(n, sweep);
+        if (maxTrials <= 0) {
+            throw new IllegalArgumentException("Trials " + maxTrials + " must be greater than zero");
+        }
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Threads " + threads + " must be greater than zero");
+        }
+        if (!(targetWidth >= 0)) {
+            throw new IllegalArgumentException("Target width " + targetWidth + " must not be negative");
+        }
+        TrialLog log = logFile == null ? null : TrialLog.open(logFile, n, sweep, seed, 0, maxTrials, targetWidth);
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            if (log != null)
+                log.replay(this::record);
+            TrialDriver.run(pool, seed, trials(), maxTrials, random -> runTrial(n, sweep, random), count -> {
+                record(count);
+                if (log != null)
+                    log.append(count);
+            }, targetWidth > 0 ? () -> 2 * m_stats.halfWidth() < targetWidth : null, log != null ? log::sync : null);
+        } finally {
+            pool.shutdown();
+            if (log != null)
+                log.close();
+        }
+    }
+
+    // empty statistics of an n-by-n grid
+    private PercolationStats(int n, boolean sweep) {
+        if (n <= 0 || n > 46340) {
+            throw new IllegalArgumentException("Grid size " + n + " must be between 1 and 46340");
+        }
+        m_stats = new OnlineStats();
+        m_n = n;
+        m_sweep = sweep;
+        m_thresholds = sweep ? new long[n * n + 1] : null;
+    }
+
+    // statistics over the trials of several logs of the same grid, e.g. from runs on
+    // different machines. The logs must not hold the same trial twice
+    public static PercolationStats merge(Path... logFiles) {
+        if (logFiles == null || logFiles.length == 0) {
+            throw new IllegalArgumentException("At least one log is needed");
+        }
+        PercolationStats merged = null;
+        TrialLog[] logs = new TrialLog[logFiles.length];
+        try {
+            for (int i = 0; i < logFiles.length; ++i) {
+                logs[i] = TrialLog.read(logFiles[i]);
+                if (merged == null) {
+                    merged = new PercolationStats(logs[i].n(), logs[i].sweep());
+                } else if (logs[i].n() != merged.m_n || logs[i].sweep() != merged.m_sweep) {
+                    throw new IllegalArgumentException(logFiles[i] + " is not a log of the same kind of run");
+                }
+                for (int j = 0; j < i; ++j) {
+                    if (logs[j].seed() == logs[i].seed()
+                            && logs[j].firstTrial() < logs[i].firstTrial() + logs[i].trials()
+                            && logs[i].firstTrial() < logs[j].firstTrial() + logs[j].trials()) {
+                        throw new IllegalArgumentException(logFiles[i] + " and " + logFiles[j] + " share trials");
+                    }
+                }
+                PercolationStats part = new PercolationStats(logs[i].n(), logs[i].sweep());
+                logs[i].replay(part::record);
+                merged.m_stats.merge(part.m_stats);
+                if (merged.m_sweep) {
+                    for (int k = 0; k < merged.m_thresholds.length; ++k) {
+                        merged.m_thresholds[k] += part.m_thresholds[k];
+                    }
+                }
+            }
+        } finally {
+            for (TrialLog log : logs) {
+                if (log != null)
+                    log.close();
             }
-            // calculate the percentage of open sites
-            m_trialResults[i] = 1.0 * percolate.numberOfOpenSites() / realSize;
+        }
+        return merged;
+    }
+
+    private void record(int openCount) {
+        m_stats.add(1.0 * openCount / ((double) m_n * m_n));
+        if (m_sweep) {
+            ++m_thresholds[openCount];
         }
     }
 
+    // one trial, timed when the metrics are on; returns the open count at which the grid
+    // percolates
+    private static int runTrial(int n, boolean sweep, SplittableRandom random) {
+        long start = PercolationMetrics.ENABLED ? System.nanoTime() : 0;
+        int count = sweep ? runSweepTrial(n, random) : runTrial(n, random);
+        if (PercolationMetrics.ENABLED)
+            PercolationMetrics.recordTrial(System.nanoTime() - start);
+        return count;
+    }
+
+    // open random sites until the grid percolates, returns the number of open sites
+    private static int runTrial(int n, SplittableRandom random) {
+        Percolation percolate = new Percolation(n);
+        while (!percolate.percolates()) {
+            int row = random.nextInt(n) + 1;
+            int col = random.nextInt(n) + 1;
+            if (PercolationMetrics.ENABLED && percolate.isOpen(row, col))
+                PercolationMetrics.recordWastedDraw();
+            percolate.open(row, col);
+        }
+        return percolate.numberOfOpenSites();
+    }
+
+    // open the sites of a random permutation, drawn lazily by Fisher-Yates, until the
+    // grid percolates. Returns the number of open sites
+    private static int runSweepTrial(int n, SplittableRandom random) {
+        Percolation percolate = new Percolation(n);
+        int totalSize = n * n;
+        int[] order = new int[totalSize];
+        for (int i = 0; i < totalSize; ++i) {
+            order[i] = i;
+        }
+        for (int i = 0; !percolate.percolates(); ++i) {
+            int j = i + random.nextInt(totalSize - i);
+            int loc = order[j];
+            order[j] = order[i];
+            order[i] = loc;
+            percolate.openSite(loc);
+        }
+        return percolate.numberOfOpenSites();
+    }
+
+    // number of trials run
+    public int trials() {
+        return (int) m_stats.count();
+    }
+
     // sample mean of percolation threshold
     public double mean() {
-        return StdStats.mean(m_trialResults);
+        return m_stats.mean();
     }
 
     // sample standard deviation of percolation threshold
     public double stddev() {
-        return StdStats.stddev(m_trialResults);
+        return m_stats.stddev();
     }
 
     // low endpoint of 95% confidence interval
     public double confidenceLo() {
-        return mean() - 1.96 * stddev() / m_sqrtT;
+        return mean() - m_stats.halfWidth();
     }
 
     // high endpoint of 95% confidence interval
     public double confidenceHi() {
-        return mean() + 1.96 * stddev() / m_sqrtT;
+        return mean() + m_stats.halfWidth();
+    }
+
+    // fraction of trials that percolate with k open sites, for k = 0..n*n: the
+    // percolation probability at a fixed open count, the cumulative distribution of the
+    // thresholds. Only available for sweep runs, where the threshold of each trial is exact
+    public double[] percolationCurve() {
+        if (!m_sweep) {
+            throw new IllegalStateException("The percolation curve needs a sweep run");
+        }
+        double[] curve = new double[m_thresholds.length];
+        long percolated = 0;
+        for (int k = 0; k < curve.length; ++k) {
+            percolated += m_thresholds[k];
+            curve[k] = 1.0 * percolated / m_stats.count();
+        }
+        return curve;
+    }
+
+    // probability that the grid percolates when every site is open independently with
+    // probability p: the curve averaged over the binomial distribution of the open count
+    // (Newman-Ziff). Only available for sweep runs
+    public double percolationProbability(double p) {
+        if (!(p >= 0 && p <= 1)) {
+            throw new IllegalArgumentException("Probability " + p + " must be between 0 and 1");
+        }
+        double[] curve = percolationCurve();
+        int total = curve.length - 1;
+        if (p == 0 || p == 1)
+            return curve[p == 0 ? 0 : total];
+        // binomial weights relative to the most likely open count, summed outwards until
+        // they no longer matter
+        int mode = (int) Math.min(total, Math.floor((total + 1) * p));
+        double odds = p / (1 - p);
+        double sum = curve[mode];
+        double norm = 1;
+        double weight = 1;
+        for (int k = mode + 1; k <= total && weight > 1e-17; ++k) {
+            weight *= (double) (total - k + 1) / k * odds;
+            sum += weight * curve[k];
+            norm += weight;
+        }
+        weight = 1;
+        for (int k = mode - 1; k >= 0 && weight > 1e-17; --k) {
+            weight *= (double) (k + 1) / (total - k) / odds;
+            sum += weight * curve[k];
+            norm += weight;
+        }
+        return sum / norm;
     }
 
     // test client (see below)
     public static void main(String[] args) {
-        if (args.length != 2) {
-            throw new IllegalArgumentException("Input must be of size 2");
+        PercolationStats testObj;
+        if (args.length >= 2 && args[0].equals("merge")) {
+            Path[] logs = new Path[args.length - 1];
+            for (int i = 1; i < args.length; ++i) {
+                logs[i - 1] = Path.of(args[i]);
+            }
+            testObj = merge(logs);
+        } else {
+            if (args.length != 2 && (args.length < 4 || args.length > 7)) {
+                throw new IllegalArgumentException("Input must be of size 2 or 4 to 7"
+                        + " (n trials [seed threads [sweep [targetWidth [log]]]]) or merge log...");
+            }
+            int size = Integer.parseInt(args[0]);
+            int trials = Integer.parseInt(args[1]);
+            testObj = args.length == 2 ? new PercolationStats(size, trials)
+                    : new PercolationStats(size, trials, args.length >= 6 ? Double.parseDouble(args[5]) : 0.0,
+                            Long.parseLong(args[2]), Integer.parseInt(args[3]),
+                            args.length >= 5 && Boolean.parseBoolean(args[4]),
+                            args.length == 7 ? Path.of(args[6]) : null);
         }
-        int size = Integer.parseInt(args[0]);
-        int trials = Integer.parseInt(args[1]);
-        PercolationStats testObj = new PercolationStats(size, trials);
+        StdOut.println("trials                  = " + testObj.trials());
         StdOut.println("mean                    = " + testObj.mean());
         StdOut.println("stddev                  = " + testObj.stddev());
         StdOut.println("95% confidence interval = [" + testObj.confidenceLo() + ", " + testObj.confidenceHi() + "]");
+        if (PercolationMetrics.ENABLED)
+            StdOut.println("metrics                 = " + PercolationMetrics.snapshot());
     }
 
 }
@@ -0,0 +1,209 @@
+/**
+ * MIT License
+ * 
+ * Copyright (c) 2021 Hongliang Fan
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.util.Arrays;
+
+import edu.princeton.cs.algs4.StdOut;
+import edu.princeton.cs.algs4.StdRandom;
+
+// Percolation that can undo opens. The union-find is weighted by size without path
+// compression, so every change is a few array writes that are recorded on an undo log;
+// rollbackTo(checkpoint) replays the log backwards in time proportional to the undone work.
+// The layout and status bits are those of SiteUnionFind, whose path halving would
+// make every find a logged change, so the union-find itself is kept here.
+public class RollbackPercolation {
+
+    private final int m_n; // size;
+    private final int[] m_parent; // parent link, or -(cluster size) when the site is a root
+    private final byte[] m_status; // open bit plus the top/bottom connection bits of each root
+    private int m_totalCounts; // count number of total open cells
+    private int m_percolatedAt; // log length when the system first percolated, -1 if it does not
+    // Undo log. An open of loc is recorded as -(loc + 1); a union that hung rootQ under
+    // rootP as the three entries (old status of rootP, size of rootQ, rootQ)
+    private int[] m_log;
+    private int m_logSize;
+
+    // creates n-by-n grid, with all sites initially blocked
+    public RollbackPercolation(int n) {
+        if (n <= 0)
+            throw new IllegalArgumentException("Size " + n + " must be greater than zero");
+        m_n = n;
+        int totalSize = m_n * m_n;
+        m_parent = new int[totalSize];
+        Arrays.fill(m_parent, -1);
+        m_status = new byte[totalSize];
+        m_totalCounts = 0;
+        m_percolatedAt = -1;
+        m_log = new int[16];
+        m_logSize = 0;
+    }
+
+    private void log(int entry) {
+        if (m_logSize == m_log.length)
+            m_log = Arrays.copyOf(m_log, 2 * m_log.length);
+        m_log[m_logSize++] = entry;
+    }
+
+    // root of loc; the trees are kept shallow by the size rule alone
+    private int find(int loc) {
+        while (m_parent[loc] >= 0) {
+            loc = m_parent[loc];
+        }
+        return loc;
+    }
+
+    // weighted union of the clusters of the open sites p and q, recorded on the log
+    private void union(int p, int q) {
+        int rootP = find(p);
+        int rootQ = find(q);
+        if (rootP == rootQ)
+            return;
+        // sizes are stored negated, so the larger cluster has the smaller value
+        if (m_parent[rootP] > m_parent[rootQ]) {
+            int tmp = rootP;
+            rootP = rootQ;
+            rootQ = tmp;
+        }
+        log(m_status[rootP]);
+        log(-m_parent[rootQ]);
+        log(rootQ);
+        m_parent[rootP] += m_parent[rootQ];
+        m_parent[rootQ] = rootP;
+        m_status[rootP] |= m_status[rootQ];
+    }
+
+    // opens the site (row, col) if it is not open already
+    public void open(int row, int col) {
+        int loc = SiteUnionFind.gridSite(m_n, row, col);
+        if (m_status[loc] != 0) {
+            return;
+        }
+        log(-(loc + 1));
+        ++m_totalCounts;
+        byte status = SiteUnionFind.OPEN;
+        if (row == 1)
+            status |= SiteUnionFind.TOP;
+        if (row == m_n)
+            status |= SiteUnionFind.BOTTOM;
+        m_status[loc] = status;
+        // Union it with the open neighbors
+        if (row > 1 && m_status[loc - m_n] != 0)
+            union(loc - m_n, loc);
+        if (row < m_n && m_status[loc + m_n] != 0)
+            union(loc + m_n, loc);
+        if (col > 1 && m_status[loc - 1] != 0)
+            union(loc - 1, loc);
+        if (col < m_n && m_status[loc + 1] != 0)
+            union(loc + 1, loc);
+        int spanning = SiteUnionFind.TOP | SiteUnionFind.BOTTOM;
+        if (m_percolatedAt == -1 && (m_status[find(loc)] & spanning) == spanning)
+            m_percolatedAt = m_logSize;
+    }
+
+    // returns a checkpoint of the current state for rollbackTo
+    public int checkpoint() {
+        return m_logSize;
+    }
+
+    // undoes every open made since checkpoint was taken
+    public void rollbackTo(int checkpoint) {
+        if (checkpoint < 0 || checkpoint > m_logSize)
+            throw new IllegalArgumentException("Checkpoint " + checkpoint + " is not between 0 and " + m_logSize);
+        while (m_logSize > checkpoint) {
+            int entry = m_log[--m_logSize];
+            if (entry < 0) {
+                int loc = -entry - 1;
+                m_status[loc] = 0;
+                --m_totalCounts;
+            } else {
+                int rootQ = entry;
+                int sizeQ = m_log[--m_logSize];
+                int rootP = m_parent[rootQ];
+                m_status[rootP] = (byte) m_log[--m_logSize];
+                m_parent[rootP] += sizeQ;
+                m_parent[rootQ] = -sizeQ;
+            }
+        }
+        if (m_percolatedAt > m_logSize)
+            m_percolatedAt = -1;
+    }
+
+    // is the site (row, col) open?
+    public boolean isOpen(int row, int col) {
+        return m_status[SiteUnionFind.gridSite(m_n, row, col)] != 0;
+    }
+
+    // is the site (row, col) full?
+    public boolean isFull(int row, int col) {
+        return (m_status[find(SiteUnionFind.gridSite(m_n, row, col))] & SiteUnionFind.TOP) != 0;
+    }
+
+    // returns the number of open sites
+    public int numberOfOpenSites() {
+        return m_totalCounts;
+    }
+
+    // does the system percolate?
+    public boolean percolates() {
+        return m_percolatedAt != -1;
+    }
+
+    // index of the open in (rows[i], cols[i]) that first makes an n-by-n grid percolate,
+    // or -1 if the whole sequence does not. Bisects with O(log k) rollbacks instead
+    // of rebuilding the grid for every probe
+    public static int criticalOpen(int n, int[] rows, int[] cols) {
+        if (rows == null || cols == null || rows.length != cols.length)
+            throw new IllegalArgumentException("rows and cols must be non-null and of the same length");
+        RollbackPercolation percolation = new RollbackPercolation(n);
+        // the first lo sites are open and do not percolate; the first hi do, if hi <= rows.length
+        int lo = 0;
+        int hi = rows.length + 1;
+        while (hi - lo > 1) {
+            int mid = (lo + hi) >>> 1;
+            int checkpoint = percolation.checkpoint();
+            for (int i = lo; i < mid; ++i) {
+                percolation.open(rows[i], cols[i]);
+            }
+            if (percolation.percolates()) {
+                hi = mid;
+                percolation.rollbackTo(checkpoint);
+            } else {
+                lo = mid;
+            }
+        }
+        return hi <= rows.length ? hi - 1 : -1;
+    }
+
+    // test client: finds the critical open of a random sequence of n*n opens
+    public static void main(String[] args) {
+        int n = Integer.parseInt(args[0]);
+        int[] rows = new int[n * n];
+        int[] cols = new int[n * n];
+        for (int i = 0; i < rows.length; ++i) {
+            rows[i] = StdRandom.uniform(1, n + 1);
+            cols[i] = StdRandom.uniform(1, n + 1);
+        }
+        StdOut.println("critical open = " + criticalOpen(n, rows, cols));
+    }
+}
@@ -0,0 +1,136 @@
+/**
+ * MIT License
+ * 
+ * Copyright (c) 2021 Hongliang Fan
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.util.Arrays;
+
+// Union-find over the sites of a grid or lattice, shared by Percolation and
+// LatticePercolation. No virtual nodes: each root carries the top/bottom bits of its
+// cluster, which avoids the backwash without a second union-find. Parents store
+// -(cluster size) at a root, and find halves the path on the way up.
+class SiteUnionFind {
+
+    // Site status bits. TOP and BOTTOM are only meaningful on the root of a cluster
+    static final byte OPEN = 1;
+    static final byte TOP = 2;
+    static final byte BOTTOM = 4;
+
+    private final int[] m_parent; // parent link, or -(cluster size) when the site is a root
+    private final byte[] m_status; // open bit plus the top/bottom connection bits of each root
+
+    // creates sites sites, all blocked
+    SiteUnionFind(int sites) {
+        m_parent = new int[sites];
+        Arrays.fill(m_parent, -1);
+        m_status = new byte[sites];
+    }
+
+    // site of (row, col) of an n-by-n grid, numbered row by row from 0; rows and
+    // columns run from 1 to n
+    static int gridSite(int n, int row, int col) {
+        if (row < 1 || row > n || col < 1 || col > n) {
+            throw new IllegalArgumentException(
+                    "index indexed by " + row + " or " + col + " is not between 1 and " + n);
+        }
+        return (row - 1) * n + (col - 1);
+    }
+
+    int sites() {
+        return m_status.length;
+    }
+
+    boolean isOpen(int site) {
+        return m_status[site] != 0;
+    }
+
+    // opens the blocked site as a cluster of its own, touching the faces in edges
+    // (TOP and/or BOTTOM)
+    void open(int site, byte edges) {
+        m_status[site] = (byte) (OPEN | edges);
+    }
+
+    // root of site, halving the path on the way up
+    int find(int site) {
+        int steps = 0;
+        while (m_parent[site] >= 0) {
+            int parent = m_parent[site];
+            if (m_parent[parent] >= 0) {
+                m_parent[site] = m_parent[parent];
+            }
+            site = parent;
+            ++steps;
+        }
+        if (PercolationMetrics.ENABLED)
+            PercolationMetrics.recordFind(steps);
+        return site;
+    }
+
+    // number of sites in the cluster of root
+    int size(int root) {
+        return -m_parent[root];
+    }
+
+    // hangs the smaller of the distinct roots p and q under the larger, merging their
+    // top/bottom bits; returns the surviving root
+    int link(int rootP, int rootQ) {
+        // sizes are stored negated, so the larger cluster has the smaller value
+        if (m_parent[rootP] > m_parent[rootQ]) {
+            int tmp = rootP;
+            rootP = rootQ;
+            rootQ = tmp;
+        }
+        m_parent[rootP] += m_parent[rootQ];
+        m_parent[rootQ] = rootP;
+        m_status[rootP] |= m_status[rootQ];
+        return rootP;
+    }
+
+    // weighted union of the clusters of the open sites p and q; returns false if they
+    // were already joined
+    boolean union(int p, int q) {
+        if (PercolationMetrics.ENABLED)
+            PercolationMetrics.recordUnion();
+        int rootP = find(p);
+        int rootQ = find(q);
+        if (rootP == rootQ)
+            return false;
+        link(rootP, rootQ);
+        return true;
+    }
+
+    // marks the cluster of the open site as touching the faces in edges (TOP and/or BOTTOM)
+    void touch(int site, byte edges) {
+        m_status[find(site)] |= edges;
+    }
+
+    // is the cluster of site connected to the top?
+    boolean isFull(int site) {
+        // A closed site is its own root with no bits set, so a single find is enough
+        return (m_status[find(site)] & TOP) != 0;
+    }
+
+    // is the cluster of site connected to both the top and the bottom?
+    boolean spans(int site) {
+        return (m_status[find(site)] & (TOP | BOTTOM)) == (TOP | BOTTOM);
+    }
+}
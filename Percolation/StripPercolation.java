@@ -0,0 +1,182 @@
+/**
+ * MIT License
+ * 
+ * Copyright (c) 2021 Hongliang Fan
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import edu.princeton.cs.algs4.StdOut;
+import edu.princeton.cs.algs4.StdRandom;
+
+// Percolation of a grid whose open sites are all known up front. Clusters are labelled
+// Hoshen-Kopelman style: the grid is cut into horizontal strips that are labelled in
+// parallel, then the strip boundaries are merged and the top/bottom bits computed.
+public class StripPercolation {
+
+    private final int m_n; // size;
+    private final SiteUnionFind m_sites; // open sites and their clusters
+    private int m_totalCounts; // count number of total open cells
+    private int m_clusters; // number of open clusters
+    private boolean m_percolates; // some cluster touches both top and bottom
+
+    // labels the n-by-n grid where open[row][col] (0-based) tells whether a site is open,
+    // using threads workers
+    public StripPercolation(boolean[][] open, int threads) {
+        if (open == null || open.length == 0)
+            throw new IllegalArgumentException("The grid must not be empty");
+        if (threads <= 0)
+            throw new IllegalArgumentException("Threads " + threads + " must be greater than zero");
+        m_n = open.length;
+        for (boolean[] row : open) {
+            if (row == null || row.length != m_n)
+                throw new IllegalArgumentException("The grid must be " + m_n + "-by-" + m_n);
+        }
+        m_sites = new SiteUnionFind(m_n * m_n);
+
+        // Each strip only touches the sites of its own rows
+        int strips = Math.min(m_n, threads);
+        int[] clusters = new int[strips];
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+        for (int s = 0; s < strips; ++s) {
+            final int strip = s;
+            tasks.add(() -> {
+                clusters[strip] = labelStrip(open, firstRow(strip, strips), firstRow(strip + 1, strips));
+                return null;
+            });
+        }
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            for (Future<Void> future : pool.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while labelling", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Labelling failed", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+
+        m_totalCounts = 0;
+        m_clusters = 0;
+        for (int s = 0; s < strips; ++s) {
+            m_clusters += clusters[s];
+        }
+        // Merge each strip with the one above it
+        for (int s = 1; s < strips; ++s) {
+            int loc = firstRow(s, strips) * m_n;
+            for (int col = 0; col < m_n; ++col, ++loc) {
+                if (m_sites.isOpen(loc) && m_sites.isOpen(loc - m_n) && m_sites.union(loc - m_n, loc))
+                    --m_clusters;
+            }
+        }
+        // Mark the roots touching the top and the bottom rows
+        int lastRow = m_n * (m_n - 1);
+        for (int col = 0; col < m_n; ++col) {
+            if (m_sites.isOpen(col))
+                m_sites.touch(col, SiteUnionFind.TOP);
+        }
+        for (int col = 0; col < m_n; ++col) {
+            if (m_sites.isOpen(lastRow + col)) {
+                m_sites.touch(lastRow + col, SiteUnionFind.BOTTOM);
+                if (m_sites.spans(lastRow + col))
+                    m_percolates = true;
+            }
+        }
+        for (int loc = 0; loc < m_sites.sites(); ++loc) {
+            if (m_sites.isOpen(loc))
+                ++m_totalCounts;
+        }
+    }
+
+    // first row of the strip-th of strips strips
+    private int firstRow(int strip, int strips) {
+        return (int) ((long) strip * m_n / strips);
+    }
+
+    // labels the rows [fromRow, toRow), returns the number of clusters found in them
+    private int labelStrip(boolean[][] open, int fromRow, int toRow) {
+        int clusters = 0;
+        int loc = fromRow * m_n;
+        for (int row = fromRow; row < toRow; ++row) {
+            for (int col = 0; col < m_n; ++col, ++loc) {
+                if (!open[row][col])
+                    continue;
+                m_sites.open(loc, (byte) 0);
+                ++clusters;
+                if (col > 0 && m_sites.isOpen(loc - 1) && m_sites.union(loc - 1, loc))
+                    --clusters;
+                if (row > fromRow && m_sites.isOpen(loc - m_n) && m_sites.union(loc - m_n, loc))
+                    --clusters;
+            }
+        }
+        return clusters;
+    }
+
+    // is the site (row, col) open?
+    public boolean isOpen(int row, int col) {
+        return m_sites.isOpen(SiteUnionFind.gridSite(m_n, row, col));
+    }
+
+    // is the site (row, col) full?
+    public boolean isFull(int row, int col) {
+        return m_sites.isFull(SiteUnionFind.gridSite(m_n, row, col));
+    }
+
+    // returns the number of open sites
+    public int numberOfOpenSites() {
+        return m_totalCounts;
+    }
+
+    // returns the number of open clusters
+    public int numberOfClusters() {
+        return m_clusters;
+    }
+
+    // does the system percolate?
+    public boolean percolates() {
+        return m_percolates;
+    }
+
+    // test client: labels a random n-by-n grid with site vacancy probability p
+    public static void main(String[] args) {
+        int n = Integer.parseInt(args[0]);
+        double p = Double.parseDouble(args[1]);
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        boolean[][] open = new boolean[n][n];
+        for (int row = 0; row < n; ++row) {
+            for (int col = 0; col < n; ++col) {
+                open[row][col] = StdRandom.bernoulli(p);
+            }
+        }
+        StripPercolation percolation = new StripPercolation(open, threads);
+        StdOut.println("open sites = " + percolation.numberOfOpenSites());
+        StdOut.println("clusters   = " + percolation.numberOfClusters());
+        StdOut.println("percolates = " + percolation.percolates());
+    }
+}
@@ -0,0 +1,126 @@
+/**
+ * MIT License
+ * 
+ * Copyright (c) 2021 Hongliang Fan
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntConsumer;
+
+// Runs numbered trials on a fork-join pool and hands their results over in trial order,
+// so a floating point fold of them is the same whatever the number of threads. Trial i
+// draws from its own random stream, a hash of (seed, i).
+//
+// A run with nothing to check along the way is a single invocation over every trial.
+// Otherwise the trials run in chunks of CHUNK_TASKS leaf tasks per worker, folded after
+// each chunk; the stopping condition is still only looked at every BATCH trials, so
+// where a run stops does not depend on the chunk size either.
+class TrialDriver {
+    static final int BATCH = 64; // trials between two looks at the stopping condition
+    private static final int GRAIN = 4; // trials run by a leaf task
+    private static final int CHUNK_TASKS = 16; // leaf tasks per worker in a chunk
+
+    // one trial, drawing from random; returns its result
+    interface Trial {
+        int run(SplittableRandom random);
+    }
+
+    private TrialDriver() {
+    }
+
+    // random stream of the trial-th trial, a SplitMix64 hash of (seed, trial) as its seed
+    static SplittableRandom trialStream(long seed, long trial) {
+        long z = seed + (trial + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return new SplittableRandom(z ^ (z >>> 31));
+    }
+
+    // runs trials [first, last) on pool and passes their results to fold in trial order.
+    // If stop is not null, the run ends before the first trial i > 0, i a multiple of
+    // BATCH, at which stop is true; chunkDone, if not null, runs after each chunk is
+    // folded. Returns the number of the first trial not run
+    static int run(ForkJoinPool pool, long seed, int first, int last, Trial trial, IntConsumer fold,
+            BooleanSupplier stop, Runnable chunkDone) {
+        int chunk = last - first;
+        if (stop != null || chunkDone != null) {
+            int tasks = pool.getParallelism() * CHUNK_TASKS;
+            chunk = (tasks * GRAIN + BATCH - 1) / BATCH * BATCH;
+        }
+        int[] results = new int[Math.min(chunk, last - first)];
+        int next = first;
+        while (next < last && !stops(next, stop)) {
+            int end = Math.min(next + chunk, last);
+            pool.invoke(new TrialTask(trial, seed, results, next, next, end));
+            int folded = next;
+            while (folded < end && (folded == next || !stops(folded, stop))) {
+                fold.accept(results[folded - next]);
+                ++folded;
+            }
+            if (chunkDone != null)
+                chunkDone.run();
+            if (folded < end)
+                return folded;
+            next = end;
+        }
+        return next;
+    }
+
+    private static boolean stops(int trial, BooleanSupplier stop) {
+        return stop != null && trial > 0 && trial % BATCH == 0 && stop.getAsBoolean();
+    }
+
+    // runs trials [lo, hi), splitting the range until it is small enough for one worker
+    private static class TrialTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Trial trial;
+        private final long seed;
+        private final int[] results; // results[i - base] is the result of trial i
+        private final int base;
+        private final int lo;
+        private final int hi;
+
+        TrialTask(Trial trial, long seed, int[] results, int base, int lo, int hi) {
+            this.trial = trial;
+            this.seed = seed;
+            this.results = results;
+            this.base = base;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        protected void compute() {
+            if (hi - lo <= GRAIN) {
+                for (int i = lo; i < hi; ++i) {
+                    results[i - base] = trial.run(trialStream(seed, i));
+                }
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            invokeAll(new TrialTask(trial, seed, results, base, lo, mid),
+                    new TrialTask(trial, seed, results, base, mid, hi));
+        }
+    }
+}
@@ -0,0 +1,241 @@
+/**
+ * MIT License
+ * 
+ * Copyright (c) 2021 Hongliang Fan
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.IntConsumer;
+
+// Append-only binary log of PercolationStats trials. A 48-byte header (magic, version,
+// n, sweep, seed, first trial index, maximum number of trials, target width) is
+// followed by one int per trial: the number of open sites at which it percolated. Trial i of a run uses the stream derived from
+// (seed, firstTrial + i), so the record count is also the position of the RNG streams.
+public class TrialLog implements AutoCloseable {
+
+    private static final int MAGIC = 0x50455243; // "PERC"
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 48;
+    private static final int RECORD_BYTES = Integer.BYTES;
+    private static final int BUFFER_RECORDS = 8192; // records read or buffered per I/O call
+
+    private final FileChannel m_channel;
+    private final int m_n; // grid size
+    private final boolean m_sweep; // trials of a sweep run
+    private final long m_seed; // master seed
+    private final long m_firstTrial; // index of the first trial in the log
+    private final long m_maxTrials; // number of trials the run stops at
+    private final double m_targetWidth; // confidence interval width the run stops at, 0 for none
+    private long m_trials; // number of records
+    private final ByteBuffer m_buffer; // records appended since the last sync
+
+    private TrialLog(FileChannel channel, int n, boolean sweep, long seed, long firstTrial, long maxTrials,
+            double targetWidth, long trials) {
+        m_channel = channel;
+        m_n = n;
+        m_sweep = sweep;
+        m_seed = seed;
+        m_firstTrial = firstTrial;
+        m_maxTrials = maxTrials;
+        m_targetWidth = targetWidth;
+        m_trials = trials;
+        m_buffer = ByteBuffer.allocate(BUFFER_RECORDS * RECORD_BYTES);
+    }
+
+    // opens file for appending, creating it if it is missing or shorter than a header
+    // (a crash while it was created). An existing log must have been written for the same
+    // n, sweep, seed, first trial, maximum number of trials and target width; a partial
+    // record left by a crash is dropped
+    public static TrialLog open(Path file, int n, boolean sweep, long seed, long firstTrial, long maxTrials,
+            double targetWidth) {
+        try {
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            try {
+                if (channel.size() < HEADER_BYTES) {
+                    ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+                    header.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(sweep ? 1 : 0).putLong(seed)
+                            .putLong(firstTrial).putLong(maxTrials).putDouble(targetWidth).flip();
+                    channel.truncate(0);
+                    writeFully(channel, header, 0);
+                    channel.force(true);
+                    return new TrialLog(channel, n, sweep, seed, firstTrial, maxTrials, targetWidth, 0);
+                }
+                TrialLog log = readHeader(channel, file);
+                if (log.m_n != n || log.m_sweep != sweep || log.m_seed != seed || log.m_firstTrial != firstTrial
+                        || log.m_maxTrials != maxTrials || Double.compare(log.m_targetWidth, targetWidth) != 0) {
+                    throw new IllegalArgumentException(file + " was written by a different run (n = " + log.m_n
+                            + ", sweep = " + log.m_sweep + ", seed = " + log.m_seed + ", first trial = "
+                            + log.m_firstTrial + ", max trials = " + log.m_maxTrials + ", target width = "
+                            + log.m_targetWidth + ")");
+                }
+                channel.truncate(HEADER_BYTES + log.m_trials * RECORD_BYTES);
+                return log;
+            } catch (RuntimeException | IOException e) {
+                channel.close();
+                throw e;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open trial log " + file, e);
+        }
+    }
+
+    // opens an existing log for reading
+    public static TrialLog read(Path file) {
+        try {
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+            try {
+                return readHeader(channel, file);
+            } catch (RuntimeException | IOException e) {
+                channel.close();
+                throw e;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read trial log " + file, e);
+        }
+    }
+
+    private static TrialLog readHeader(FileChannel channel, Path file) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        while (header.hasRemaining() && channel.read(header, header.position()) > 0) {
+            // keep reading
+        }
+        header.flip();
+        if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC)
+            throw new IllegalArgumentException(file + " is not a trial log");
+        int version = header.getInt();
+        if (version != VERSION)
+            throw new IllegalArgumentException(file + " has unsupported version " + version);
+        int n = header.getInt();
+        boolean sweep = header.getInt() != 0;
+        long seed = header.getLong();
+        long firstTrial = header.getLong();
+        long maxTrials = header.getLong();
+        double targetWidth = header.getDouble();
+        long trials = (channel.size() - HEADER_BYTES) / RECORD_BYTES;
+        return new TrialLog(channel, n, sweep, seed, firstTrial, maxTrials, targetWidth, trials);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    public int n() {
+        return m_n;
+    }
+
+    public boolean sweep() {
+        return m_sweep;
+    }
+
+    public long seed() {
+        return m_seed;
+    }
+
+    public long firstTrial() {
+        return m_firstTrial;
+    }
+
+    public long maxTrials() {
+        return m_maxTrials;
+    }
+
+    public double targetWidth() {
+        return m_targetWidth;
+    }
+
+    // number of trials in the log, including those not yet synced
+    public long trials() {
+        return m_trials;
+    }
+
+    // passes the open count of every synced trial, in order, to consumer
+    public void replay(IntConsumer consumer) {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_RECORDS * RECORD_BYTES);
+        long position = HEADER_BYTES;
+        long end = HEADER_BYTES + (m_trials - m_buffer.position() / RECORD_BYTES) * RECORD_BYTES;
+        try {
+            while (position < end) {
+                buffer.clear();
+                buffer.limit((int) Math.min(buffer.capacity(), end - position));
+                while (buffer.hasRemaining()) {
+                    if (m_channel.read(buffer, position + buffer.position()) < 0)
+                        throw new IOException("Unexpected end of trial log");
+                }
+                position += buffer.position();
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    consumer.accept(buffer.getInt());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // appends the open count of the next trial
+    public void append(int openCount) {
+        if (!m_buffer.hasRemaining())
+            flush();
+        m_buffer.putInt(openCount);
+        ++m_trials;
+    }
+
+    private void flush() {
+        m_buffer.flip();
+        try {
+            writeFully(m_channel, m_buffer, HEADER_BYTES + (m_trials - m_buffer.remaining() / RECORD_BYTES) * RECORD_BYTES);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        m_buffer.clear();
+    }
+
+    // writes the appended trials and forces them to disk
+    public void sync() {
+        flush();
+        try {
+            m_channel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void close() {
+        try {
+            if (m_buffer.position() > 0)
+                sync();
+        } finally {
+            try {
+                m_channel.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
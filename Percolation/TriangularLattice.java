@@ -0,0 +1,73 @@
+/**
+ * MIT License
+ * 
+ * Copyright (c) 2021 Hongliang Fan
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+// The n-by-n triangular lattice, drawn as a square grid with one extra diagonal:
+// site (row, col) also touches (row-1, col+1) and (row+1, col-1), 6 neighbours in all.
+public class TriangularLattice implements Lattice {
+
+    private final int m_n; // size
+
+    public TriangularLattice(int n) {
+        if (n <= 0 || n > 46340)
+            throw new IllegalArgumentException("Size " + n + " must be between 1 and 46340");
+        m_n = n;
+    }
+
+    public int sites() {
+        return m_n * m_n;
+    }
+
+    public int maxDegree() {
+        return 6;
+    }
+
+    public int neighbors(int site, int[] neighbors) {
+        int row = site / m_n;
+        int col = site - row * m_n;
+        int count = 0;
+        if (row > 0) {
+            neighbors[count++] = site - m_n;
+            if (col < m_n - 1)
+                neighbors[count++] = site - m_n + 1;
+        }
+        if (row < m_n - 1) {
+            neighbors[count++] = site + m_n;
+            if (col > 0)
+                neighbors[count++] = site + m_n - 1;
+        }
+        if (col > 0)
+            neighbors[count++] = site - 1;
+        if (col < m_n - 1)
+            neighbors[count++] = site + 1;
+        return count;
+    }
+
+    public boolean isTop(int site) {
+        return site < m_n;
+    }
+
+    public boolean isBottom(int site) {
+        return site >= m_n * (m_n - 1);
+    }
+}